@@ -1,7 +1,7 @@
 package ru.practicum.category.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.category.dto.CategoryDto;
@@ -9,11 +9,13 @@ import ru.practicum.category.dto.NewCategoryDto;
 import ru.practicum.category.model.Category;
 import ru.practicum.constants.error.ErrorConstants;
 import ru.practicum.constants.sort.SortConstants;
+import ru.practicum.event.model.EventsChanged;
 import ru.practicum.event.storage.EventStorage;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.EntityNotFoundException;
 import ru.practicum.category.mapper.CategoryMapper;
 import ru.practicum.category.storage.CategoryStorage;
+import ru.practicum.utility.OffsetPageRequest;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -27,6 +29,7 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryStorage storage;
     private final EventStorage eventStorage;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -53,13 +56,14 @@ public class CategoryServiceImpl implements CategoryService {
         Category category = getCat(catId);
 
         category.setName(newCategoryDto.getName());
+        eventPublisher.publishEvent(EventsChanged.all());
 
         return CategoryMapper.makeCatDto(storage.save(category));
     }
 
     @Override
     public List<CategoryDto> getCategories(int from, int size) {
-        List<Category> categories = storage.findAll(PageRequest.of(from / size, size, SortConstants.SORT_EVENT_BY_ID_DESC))
+        List<Category> categories = storage.findAll(OffsetPageRequest.of(from, size, SortConstants.SORT_EVENT_BY_ID_DESC))
                 .getContent();
         return categories.stream()
                 .map(CategoryMapper::makeCatDto)
@@ -6,7 +6,9 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.compilation.dto.CompilationDto;
 import ru.practicum.compilation.service.CompilationService;
+import ru.practicum.utility.PageCursor;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 import java.util.List;
@@ -23,9 +25,12 @@ public class CompilationPublicController {
     @GetMapping
     public List<CompilationDto> getCompilations(@RequestParam(required = false) Boolean pinned,
                                                 @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                                @RequestParam(defaultValue = "10") @Positive int size) {
-        log.debug("Получен запрос Get /compilations?pinned={}&from={}&size={}", pinned, from, size);
-        return service.getCompilations(pinned, from, size);
+                                                @RequestParam(defaultValue = "10") @Positive int size,
+                                                @RequestParam(required = false) String cursor,
+                                                HttpServletResponse response) {
+        log.debug("Получен запрос Get /compilations?pinned={}&from={}&size={}&cursor={}", pinned, from, size, cursor);
+        return PageCursor.writeNext(response, service.getCompilations(pinned, from, size, PageCursor.decode(cursor)),
+                size, CompilationDto::getId);
     }
 
     @GetMapping("/{compId}")
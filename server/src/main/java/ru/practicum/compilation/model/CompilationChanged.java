@@ -0,0 +1,10 @@
+package ru.practicum.compilation.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CompilationChanged {
+    private long compilationId;
+}
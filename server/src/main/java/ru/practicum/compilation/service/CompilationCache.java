@@ -0,0 +1,213 @@
+package ru.practicum.compilation.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.compilation.dto.CompilationDto;
+import ru.practicum.compilation.model.CompilationChanged;
+import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.event.model.EventsChanged;
+import ru.practicum.utility.ViewsStorage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Готовые CompilationDto по id подборки.
+ * Запись сбрасывается после коммита изменения подборки или любого из входящих в нее событий
+ * (редактирование, публикация, подтверждение или отмена участия), просмотры обновляются по расписанию.
+ * При превышении max-size вытесняются давно не читавшиеся подборки вместе с их id в обратном индексе событий.
+ */
+@Component
+@Slf4j
+public class CompilationCache {
+
+    private static final String CACHE_NAME = "compilations";
+
+    private final ViewsStorage viewsStorage;
+    private final Map<Long, CachedCompilation> entries;
+    private final Map<Long, Set<Long>> compilationIdsByEventId = new ConcurrentHashMap<>();
+    // увеличивается при каждом сбросе, чтобы не сохранить загруженное до сброса значение
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    @Autowired
+    public CompilationCache(ViewsStorage viewsStorage,
+                            @Value("${explore-with-me-statistic.compilations-cache.max-size:1000}") int maxSize,
+                            MeterRegistry meterRegistry) {
+        this.viewsStorage = viewsStorage;
+        this.hits = cacheGets(meterRegistry, "hit");
+        this.misses = cacheGets(meterRegistry, "miss");
+        this.evictions = Counter.builder("cache.evictions")
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedCompilation> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    unindex(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        });
+        Gauge.builder("cache.size", entries, Map::size)
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.index.size", compilationIdsByEventId, Map::size)
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    public CompilationDto get(long compilationId, LongFunction<CachedCompilation> loader) {
+        CachedCompilation cached = entries.get(compilationId);
+        if (cached != null) {
+            hits.increment();
+            return cached.getDto();
+        }
+        misses.increment();
+
+        long loadGeneration = generation.get();
+        cached = loader.apply(compilationId);
+        put(cached, loadGeneration);
+        return cached.getDto();
+    }
+
+    /**
+     * Возвращает подборки по id, отсутствующие в кэше загружаются loader одним вызовом.
+     */
+    public Map<Long, CompilationDto> getAll(List<Long> compilationIds,
+                                            Function<List<Long>, List<CachedCompilation>> loader) {
+        Map<Long, CompilationDto> compilations = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+
+        for (Long id : compilationIds) {
+            CachedCompilation cached = entries.get(id);
+            if (cached != null) {
+                hits.increment();
+                compilations.put(id, cached.getDto());
+            } else {
+                misses.increment();
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long loadGeneration = generation.get();
+            for (CachedCompilation cached : loader.apply(missing)) {
+                put(cached, loadGeneration);
+                compilations.put(cached.getDto().getId(), cached.getDto());
+            }
+        }
+        return compilations;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCompilationChanged(CompilationChanged changed) {
+        generation.incrementAndGet();
+        evict(changed.getCompilationId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventsChanged(EventsChanged changed) {
+        generation.incrementAndGet();
+        if (changed.getEventIds() == null) {
+            entries.clear();
+            compilationIdsByEventId.clear();
+            return;
+        }
+        for (Long eventId : changed.getEventIds()) {
+            Set<Long> compilationIds = compilationIdsByEventId.get(eventId);
+            if (compilationIds != null) {
+                new ArrayList<>(compilationIds).forEach(this::evict);
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${explore-with-me-statistic.compilations-cache.views-refresh-ms:10000}",
+            fixedDelayString = "${explore-with-me-statistic.compilations-cache.views-refresh-ms:10000}")
+    public void refreshViews() {
+        Set<Long> publishedEventIds = new HashSet<>();
+        synchronized (entries) {
+            entries.values().forEach(cached -> publishedEventIds.addAll(cached.getPublishedEventIds()));
+        }
+        if (publishedEventIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<Long, Long> views = viewsStorage.getViewsByEventIds(publishedEventIds);
+            entries.replaceAll((id, cached) -> cached.withViews(views));
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обновить просмотры событий в кэше подборок: {}", e.getMessage());
+        }
+    }
+
+    private void put(CachedCompilation cached, long loadGeneration) {
+        long compilationId = cached.getDto().getId();
+        for (EventShortDto event : cached.getDto().getEvents()) {
+            compilationIdsByEventId.computeIfAbsent(event.getId(), id -> ConcurrentHashMap.newKeySet())
+                    .add(compilationId);
+        }
+        entries.put(compilationId, cached);
+        if (generation.get() != loadGeneration) {
+            evict(compilationId);
+        }
+    }
+
+    private void evict(long compilationId) {
+        CachedCompilation removed = entries.remove(compilationId);
+        if (removed != null) {
+            unindex(compilationId, removed);
+        }
+    }
+
+    private void unindex(long compilationId, CachedCompilation removed) {
+        for (EventShortDto event : removed.getDto().getEvents()) {
+            compilationIdsByEventId.computeIfPresent(event.getId(), (id, compilationIds) -> {
+                compilationIds.remove(compilationId);
+                return compilationIds.isEmpty() ? null : compilationIds;
+            });
+        }
+    }
+
+    private static Counter cacheGets(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class CachedCompilation {
+        private final CompilationDto dto;
+        private final Set<Long> publishedEventIds;
+
+        private CachedCompilation withViews(Map<Long, Long> views) {
+            Set<EventShortDto> events = dto.getEvents().stream()
+                    .map(event -> new EventShortDto(event.getAnnotation(), event.getCategory(),
+                            event.getConfirmedRequests(), event.getEventDate(), event.getId(), event.getInitiator(),
+                            event.isPaid(), event.getTitle(), views.getOrDefault(event.getId(), event.getViews())))
+                    .collect(toSet());
+            return new CachedCompilation(new CompilationDto(dto.getId(), events, dto.isPinned(), dto.getTitle()),
+                    publishedEventIds);
+        }
+    }
+}
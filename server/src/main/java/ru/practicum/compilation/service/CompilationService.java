@@ -3,6 +3,7 @@ package ru.practicum.compilation.service;
 import ru.practicum.compilation.dto.CompilationDto;
 import ru.practicum.compilation.dto.NewCompilationDto;
 import ru.practicum.compilation.dto.UpdateCompilationRequest;
+import ru.practicum.utility.PageCursor;
 
 import java.util.List;
 
@@ -14,7 +15,7 @@ public interface CompilationService {
 
     CompilationDto updateCompilation(long compilationId, UpdateCompilationRequest dto);
 
-    List<CompilationDto> getCompilations(Boolean pinned, int from, int size);
+    List<CompilationDto> getCompilations(Boolean pinned, int from, int size, PageCursor cursor);
 
     CompilationDto getCompilationById(long compId);
 }
@@ -1,7 +1,7 @@
 package ru.practicum.compilation.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.compilation.dto.CompilationDto;
@@ -9,21 +9,23 @@ import ru.practicum.compilation.dto.NewCompilationDto;
 import ru.practicum.compilation.dto.UpdateCompilationRequest;
 import ru.practicum.compilation.mapper.CompilationMapper;
 import ru.practicum.compilation.model.Compilation;
+import ru.practicum.compilation.model.CompilationChanged;
+import ru.practicum.compilation.service.CompilationCache.CachedCompilation;
 import ru.practicum.compilation.storage.CompilationStorage;
 import ru.practicum.constants.sort.SortConstants;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.mapper.EventMapper;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.state.EventState;
 import ru.practicum.event.storage.EventStorage;
 import ru.practicum.exception.EntityNotFoundException;
-import ru.practicum.request.model.EventConfirmedParticipation;
-import ru.practicum.request.storage.RequestStorage;
+import ru.practicum.utility.OffsetPageRequest;
+import ru.practicum.utility.PageCursor;
 import ru.practicum.utility.ViewsStorage;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static java.util.stream.Collectors.*;
 import static ru.practicum.constants.error.ErrorConstants.WRONG_COMPILATION_ID;
 
 @Service
@@ -33,19 +35,18 @@ public class CompilationServiceImpl implements CompilationService {
 
     private final CompilationStorage compilationStorage;
     private final EventStorage eventStorage;
-    private final RequestStorage requestStorage;
     private final ViewsStorage viewsStorage;
+    private final CompilationCache compilationCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
     public CompilationDto addCompilation(NewCompilationDto dto) {
         Compilation compilation = CompilationMapper.makeCompilation(dto);
-        Map<Long, Long> confirmedRequestByEventId = new HashMap<>();
         Map<Long, Long> viewsByEventId = new HashMap<>();
 
         if (dto.getEvents() != null) {
             addEventsToCompilation(compilation, new HashSet<>(dto.getEvents()));
-            confirmedRequestByEventId = getConfirmedRequests(compilation.getEvents());
             viewsByEventId = viewsStorage.getViews(compilation.getEvents());
         } else {
             compilation.setEvents(Collections.emptySet());
@@ -55,8 +56,8 @@ public class CompilationServiceImpl implements CompilationService {
             compilation.setPinned(false);
         }
 
-        return CompilationMapper.makeDto(compilationStorage.save(compilation), makeEventShort(compilation.getEvents(),
-                confirmedRequestByEventId, viewsByEventId));
+        return CompilationMapper.makeDto(compilationStorage.save(compilation),
+                makeEventShort(compilation.getEvents(), viewsByEventId));
     }
 
     @Override
@@ -65,6 +66,7 @@ public class CompilationServiceImpl implements CompilationService {
         getCompilation(compilationId);
 
         compilationStorage.deleteById(compilationId);
+        eventPublisher.publishEvent(new CompilationChanged(compilationId));
     }
 
     @Override
@@ -85,48 +87,39 @@ public class CompilationServiceImpl implements CompilationService {
         }
 
         compilation = compilationStorage.save(compilation);
+        eventPublisher.publishEvent(new CompilationChanged(compilationId));
 
-        Map<Long, Long> confirmedRequestByEventId = getConfirmedRequests(compilation.getEvents());
         Map<Long, Long> viewsByEventId = viewsStorage.getViews(compilation.getEvents());
 
-        return CompilationMapper.makeDto(compilation, makeEventShort(compilation.getEvents(),
-                confirmedRequestByEventId, viewsByEventId));
+        return CompilationMapper.makeDto(compilation, makeEventShort(compilation.getEvents(), viewsByEventId));
     }
 
     @Override
-    public List<CompilationDto> getCompilations(Boolean pinned, int from, int size) {
-        List<Compilation> compilations;
-        List<CompilationDto> compilationDto = new ArrayList<>();
+    public List<CompilationDto> getCompilations(Boolean pinned, int from, int size, PageCursor cursor) {
+        List<Long> compilationIds;
+        long beforeId = cursor == null ? Long.MAX_VALUE : cursor.getLastId();
+        OffsetPageRequest pr = OffsetPageRequest.of(cursor == null ? from : 0, size, SortConstants.SORT_EVENT_BY_ID_DESC);
 
         if (pinned == null) {
-            compilations = compilationStorage
-                    .findAllWithFetchedEvents(PageRequest.of(from / size, size, SortConstants.SORT_EVENT_BY_ID_DESC));
+            compilationIds = compilationStorage.findIds(beforeId, pr);
         } else {
-            compilations = compilationStorage.findByPinned(pinned,
-                    PageRequest.of(from / size, size, SortConstants.SORT_EVENT_BY_ID_DESC));
+            compilationIds = compilationStorage.findIdsByPinned(pinned, beforeId, pr);
         }
-
-        Set<Event> events = getEventsByCompilationId(compilations);
-        Map<Long, Long> confirmedRequestByEventId = getConfirmedRequests(events);
-        Map<Long, Long> viewsByEventId = viewsStorage.getViews(events);
-
-        for (Compilation compilation : compilations) {
-            compilationDto.add(CompilationMapper.makeDto(compilation, makeEventShort(compilation.getEvents(),
-                    confirmedRequestByEventId, viewsByEventId)));
+        if (compilationIds.isEmpty()) {
+            return Collections.emptyList();
         }
 
-        return compilationDto;
+        Map<Long, CompilationDto> compilations = compilationCache.getAll(compilationIds, this::loadCompilations);
+
+        return compilationIds.stream()
+                .map(compilations::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     @Override
     public CompilationDto getCompilationById(long compId) {
-        Compilation compilation = getCompilation(compId);
-
-        Map<Long, Long> confirmedRequestByEventId = getConfirmedRequests(compilation.getEvents());
-        Map<Long, Long> viewsByEventId = viewsStorage.getViews(compilation.getEvents());
-
-        return CompilationMapper.makeDto(compilation, makeEventShort(compilation.getEvents(),
-                confirmedRequestByEventId, viewsByEventId));
+        return compilationCache.get(compId, id -> makeCachedCompilation(getCompilation(id)));
     }
 
     private Compilation getCompilation(long compilationId) {
@@ -141,33 +134,30 @@ public class CompilationServiceImpl implements CompilationService {
         return compilation;
     }
 
-    private Map<Long, Long> getConfirmedRequests(Set<Event> events) {
-        List<Long> eventsIds = events.stream()
-                .map(Event::getId)
-                .collect(toList());
-
-        return requestStorage.countByEvent(eventsIds).stream()
-                .collect(toMap(EventConfirmedParticipation::getEventId, EventConfirmedParticipation::getCount));
-    }
-
-    private Set<EventShortDto> makeEventShort(Set<Event> events, Map<Long, Long> confirmed, Map<Long, Long> views) {
+    private Set<EventShortDto> makeEventShort(Set<Event> events, Map<Long, Long> views) {
         if (events.isEmpty()) {
             return Collections.emptySet();
         }
         return events.stream()
-                .map(event ->
-                        EventMapper.makeEventShortDto(event,
-                                confirmed.getOrDefault(event.getId(), 0L),
-                                views.getOrDefault(event.getId(), 0L)))
+                .map(event -> EventMapper.makeEventShortDto(event, views.getOrDefault(event.getId(), 0L)))
                 .collect(Collectors.toSet());
     }
 
-    private Set<Event> getEventsByCompilationId(List<Compilation> compilations) {
-        Set<Event> events = new HashSet<>();
-        for (Compilation c : compilations) {
-            events.addAll(c.getEvents());
-        }
+    private List<CachedCompilation> loadCompilations(List<Long> compilationIds) {
+        return compilationStorage.findDistinctByIdIn(compilationIds, SortConstants.SORT_EVENT_BY_ID_DESC).stream()
+                .map(this::makeCachedCompilation)
+                .collect(Collectors.toList());
+    }
+
+    private CachedCompilation makeCachedCompilation(Compilation compilation) {
+        Set<Long> publishedEventIds = compilation.getEvents().stream()
+                .filter(event -> event.getEventState() == EventState.PUBLISHED)
+                .map(Event::getId)
+                .collect(Collectors.toSet());
+        Map<Long, Long> viewsByEventId = viewsStorage.getViewsByEventIds(publishedEventIds);
 
-        return events;
+        return new CachedCompilation(
+                CompilationMapper.makeDto(compilation, makeEventShort(compilation.getEvents(), viewsByEventId)),
+                publishedEventIds);
     }
 }
@@ -1,23 +1,29 @@
 package ru.practicum.compilation.storage;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.compilation.model.Compilation;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CompilationStorage extends JpaRepository<Compilation, Long> {
 
-    @Query("select c " +
+    @Query("select c.id " +
             "from Compilation c " +
-            "LEFT JOIN FETCH c.events e " +
-            "where c.pinned = :pinned ")
-    List<Compilation> findByPinned(@Param("pinned") boolean pinned, Pageable p);
+            "where c.pinned = :pinned " +
+            "AND c.id < :beforeId")
+    List<Long> findIdsByPinned(@Param("pinned") boolean pinned, @Param("beforeId") long beforeId, Pageable p);
 
-    @Query("select c " +
+    @Query("select c.id " +
             "from Compilation c " +
-            "LEFT JOIN FETCH c.events e ")
-    List<Compilation> findAllWithFetchedEvents(Pageable p);
+            "where c.id < :beforeId")
+    List<Long> findIds(@Param("beforeId") long beforeId, Pageable p);
+
+    @EntityGraph(attributePaths = {"events", "events.category", "events.initiator"})
+    List<Compilation> findDistinctByIdIn(Collection<Long> ids, Sort sort);
 }
@@ -5,4 +5,5 @@ public class HeadersConstants {
     }
 
     public static final String ADMIN_ID = "headers";
+    public static final String NEXT_CURSOR = "X-Next-Cursor";
 }
@@ -9,7 +9,9 @@ import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.UpdateEventAdminRequest;
 import ru.practicum.event.service.EventService;
 import ru.practicum.event.state.EventState;
+import ru.practicum.utility.PageCursor;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
@@ -34,10 +36,13 @@ public class EventAdminController {
                                         @RequestParam(required = false)
                                         @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
                                         @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                        @RequestParam(defaultValue = "10") @Positive int size) {
+                                        @RequestParam(defaultValue = "10") @Positive int size,
+                                        @RequestParam(required = false) String cursor,
+                                        HttpServletResponse response) {
         log.debug("Получен запрос Get /admin/events?users={}&states={}&categories={}&rangeStart={}&rangeEnd={}&from={}" +
-                "&size={}", users, states, categories, rangeStart, rangeEnd, from, size);
-        return service.getEventByAdminFiltering(users, states, categories, rangeStart, rangeEnd, from, size);
+                "&size={}&cursor={}", users, states, categories, rangeStart, rangeEnd, from, size, cursor);
+        return PageCursor.writeNext(response, service.getEventByAdminFiltering(users, states, categories, rangeStart,
+                rangeEnd, from, size, PageCursor.decode(cursor)), size, EventFullDto::getId);
     }
 
     @PatchMapping("/{eventId}")
@@ -12,7 +12,9 @@ import ru.practicum.event.service.EventService;
 import ru.practicum.request.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.request.dto.EventRequestStatusUpdateResult;
 import ru.practicum.request.dto.ParticipationRequestDto;
+import ru.practicum.utility.PageCursor;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
@@ -30,9 +32,12 @@ public class EventPrivateController {
     @GetMapping
     public List<EventFullDto> getInitiatorEvents(@PathVariable long userId,
                                                  @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                                 @RequestParam(defaultValue = "10") @Positive int size) {
-        log.debug("Получен запрос Get /users/{userId}/events?from={}&size={}", from, size);
-        return service.getInitiatorEvents(userId, from, size);
+                                                 @RequestParam(defaultValue = "10") @Positive int size,
+                                                 @RequestParam(required = false) String cursor,
+                                                 HttpServletResponse response) {
+        log.debug("Получен запрос Get /users/{userId}/events?from={}&size={}&cursor={}", from, size, cursor);
+        return PageCursor.writeNext(response, service.getInitiatorEvents(userId, from, size, PageCursor.decode(cursor)),
+                size, EventFullDto::getId);
     }
 
     @PostMapping
@@ -6,7 +6,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
-import ru.practicum.client.StatsClient;
+import ru.practicum.client.StatsHitSender;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.event.dto.EventFullDto;
 import ru.practicum.event.dto.EventShortDto;
@@ -26,7 +26,7 @@ import java.util.List;
 public class EventPublicController {
 
     private final EventService service;
-    private final StatsClient client;
+    private final StatsHitSender hitSender;
     @Value("${app.name}")
     private String appName;
 
@@ -66,6 +66,6 @@ public class EventPublicController {
                 request.getRequestURI(),
                 request.getRemoteAddr(),
                 LocalDateTime.now());
-        client.postEndpointHit(endpointHitDto);
+        hitSender.send(endpointHitDto);
     }
 }
@@ -1,11 +1,14 @@
 package ru.practicum.event.mapper;
 
 import lombok.experimental.UtilityClass;
+import ru.practicum.category.dto.CategoryDto;
 import ru.practicum.category.model.Category;
 import ru.practicum.event.dto.*;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventShortView;
 import ru.practicum.event.state.EventState;
 import ru.practicum.category.mapper.CategoryMapper;
+import ru.practicum.user.dto.UserShortDto;
 import ru.practicum.user.mapper.UserMapper;
 import ru.practicum.user.model.User;
 
@@ -29,16 +32,18 @@ public class EventMapper {
                 LocalDateTime.now(), //обновление после подтверждения события
                 dto.getRequestModeration(),
                 EventState.PENDING,
-                dto.getTitle()
+                dto.getTitle(),
+                0,
+                0
         );
     }
 
-    public EventFullDto makeEventFullDto(Event event, long confirmedRequest, long views) {
+    public EventFullDto makeEventFullDto(Event event, long views) {
         return new EventFullDto(
                 event.getId(),
                 event.getAnnotation(),
                 CategoryMapper.makeCatDto(event.getCategory()),
-                confirmedRequest,
+                event.getConfirmedRequests(),
                 event.getCreatedOn(),
                 event.getDescription(),
                 event.getEventDate(),
@@ -54,11 +59,11 @@ public class EventMapper {
         );
     }
 
-    public EventShortDto makeEventShortDto(Event event, long confirmedRequest, long views) {
+    public EventShortDto makeEventShortDto(Event event, long views) {
         return new EventShortDto(
                 event.getAnnotation(),
                 CategoryMapper.makeCatDto(event.getCategory()),
-                confirmedRequest,
+                event.getConfirmedRequests(),
                 event.getEventDate(),
                 event.getId(),
                 UserMapper.makeUserShortDto(event.getInitiator()),
@@ -67,4 +72,18 @@ public class EventMapper {
                 views
         );
     }
+
+    public EventShortDto makeEventShortDto(EventShortView view, long views) {
+        return new EventShortDto(
+                view.getAnnotation(),
+                new CategoryDto(view.getCategoryId(), view.getCategoryName()),
+                view.getConfirmedRequests(),
+                view.getEventDate(),
+                view.getId(),
+                new UserShortDto(view.getInitiatorId(), view.getInitiatorName()),
+                view.getPaid(),
+                view.getTitle(),
+                views
+        );
+    }
 }
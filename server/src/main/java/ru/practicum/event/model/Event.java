@@ -49,4 +49,8 @@ public class Event {
     @Column(name = "state")
     private EventState eventState;
     private String title;
+    @Column(name = "confirmed_requests", insertable = false, updatable = false)
+    private long confirmedRequests;
+    @Column(insertable = false, updatable = false)
+    private long views;
 }
@@ -0,0 +1,30 @@
+package ru.practicum.event.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.event.state.EventState;
+
+import java.time.LocalDateTime;
+
+/**
+ * Колонки события, нужные для EventShortDto, без описания и прочих полей полной сущности.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventShortView {
+    private long id;
+    private String annotation;
+    private long categoryId;
+    private String categoryName;
+    private long confirmedRequests;
+    private LocalDateTime eventDate;
+    private long initiatorId;
+    private String initiatorName;
+    private Boolean paid;
+    private String title;
+    private LocalDateTime publishedOn;
+    private EventState eventState;
+    private long views;
+}
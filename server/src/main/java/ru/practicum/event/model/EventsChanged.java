@@ -0,0 +1,24 @@
+package ru.practicum.event.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Set;
+
+/**
+ * Уведомление об изменении данных, из которых строится представление событий.
+ * eventIds == null означает, что затронуты все события (например, переименована категория или пользователь).
+ */
+@Data
+@AllArgsConstructor
+public class EventsChanged {
+    private Set<Long> eventIds;
+
+    public static EventsChanged of(long eventId) {
+        return new EventsChanged(Set.of(eventId));
+    }
+
+    public static EventsChanged all() {
+        return new EventsChanged(null);
+    }
+}
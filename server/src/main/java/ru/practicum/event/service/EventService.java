@@ -5,13 +5,14 @@ import ru.practicum.event.state.EventState;
 import ru.practicum.request.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.request.dto.EventRequestStatusUpdateResult;
 import ru.practicum.request.dto.ParticipationRequestDto;
+import ru.practicum.utility.PageCursor;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface EventService {
 
-    List<EventFullDto> getInitiatorEvents(long userId, int from, int size);
+    List<EventFullDto> getInitiatorEvents(long userId, int from, int size, PageCursor cursor);
 
     EventFullDto addEvent(long userId, NewEventDto newEventDto);
 
@@ -25,7 +26,8 @@ public interface EventService {
                                                                       EventRequestStatusUpdateRequest requests);
 
     List<EventFullDto> getEventByAdminFiltering(List<Long> users, List<EventState> states, List<Long> categories,
-                                                LocalDateTime rangeStart, LocalDateTime rangeEnd, int from, int size);
+                                                LocalDateTime rangeStart, LocalDateTime rangeEnd, int from, int size,
+                                                PageCursor cursor);
 
     EventFullDto updateEventStatusByAdmin(long eventId, UpdateEventAdminRequest dto);
 
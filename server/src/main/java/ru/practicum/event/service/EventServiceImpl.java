@@ -2,8 +2,9 @@ package ru.practicum.event.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.category.model.Category;
@@ -12,6 +13,8 @@ import ru.practicum.constants.sort.SortConstants;
 import ru.practicum.event.dto.*;
 import ru.practicum.event.mapper.LocationMapper;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventShortView;
+import ru.practicum.event.model.EventsChanged;
 import ru.practicum.event.state.EventState;
 import ru.practicum.event.storage.EventStorage;
 import ru.practicum.exception.EntityNotFoundException;
@@ -23,12 +26,13 @@ import ru.practicum.request.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.request.dto.EventRequestStatusUpdateResult;
 import ru.practicum.request.dto.ParticipationRequestDto;
 import ru.practicum.request.mapper.RequestMapper;
-import ru.practicum.request.model.EventConfirmedParticipation;
 import ru.practicum.request.model.ParticipationRequest;
 import ru.practicum.request.status.Status;
 import ru.practicum.request.storage.RequestStorage;
 import ru.practicum.user.model.User;
 import ru.practicum.user.storage.UserStorage;
+import ru.practicum.utility.OffsetPageRequest;
+import ru.practicum.utility.PageCursor;
 import ru.practicum.utility.ViewsStorage;
 
 import java.time.LocalDateTime;
@@ -37,7 +41,9 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.*;
+import static org.springframework.data.jpa.domain.Specification.where;
 import static ru.practicum.constants.error.ErrorConstants.*;
+import static ru.practicum.event.storage.EventSpecifications.*;
 
 @Service
 @Slf4j
@@ -50,18 +56,19 @@ public class EventServiceImpl implements EventService {
     private final CategoryStorage categoryStorage;
     private final RequestStorage requestStorage;
     private final ViewsStorage viewsStorage;
+    private final ApplicationEventPublisher eventPublisher;
 
     // For EventPrivateController
     @Override
-    public List<EventFullDto> getInitiatorEvents(long userId, int from, int size) {
+    public List<EventFullDto> getInitiatorEvents(long userId, int from, int size, PageCursor cursor) {
         getUser(userId);
-        List<Event> events = eventStorage.findEventByInitiatorId(userId,
-                PageRequest.of(from / size, size, SortConstants.SORT_EVENT_BY_ID_DESC));
+        List<Event> events = eventStorage.findEventByInitiatorIdAndIdLessThan(userId,
+                cursor == null ? Long.MAX_VALUE : cursor.getLastId(),
+                OffsetPageRequest.of(cursor == null ? from : 0, size, SortConstants.SORT_EVENT_BY_ID_DESC));
 
-        Map<Long, Long> confirmed = getConfirmedRequests(events);
         Map<Long, Long> views = viewsStorage.getViews(new HashSet<>(events));
 
-        return makeEventFull(events, confirmed, views);
+        return makeEventFull(events, views);
     }
 
     @Override
@@ -74,18 +81,17 @@ public class EventServiceImpl implements EventService {
         }
         Event event = eventStorage.save(EventMapper.makeEvent(newEventDto, initiator, category));
 
-        return EventMapper.makeEventFullDto(eventStorage.save(event), 0, 0);
+        return EventMapper.makeEventFullDto(eventStorage.save(event), 0);
     }
 
     @Override
     public EventFullDto getCurrentInitiatorEvent(long userId, long eventId) {
         getUser(userId);
         Event event = getEvent(eventId);
-        Map<Long, Long> confirmed = getConfirmedRequests(List.of(event));
         Map<Long, Long> views = viewsStorage.getViews(Set.of(event));
 
         if (event.getInitiator().getId() == userId) {
-            return makeEventFull(List.of(event), confirmed, views).get(0);
+            return makeEventFull(List.of(event), views).get(0);
         } else {
             throw new ConflictException(ErrorConstants.WRONG_COMBINATION_OF_INIT_AND_EVENT);
         }
@@ -97,6 +103,7 @@ public class EventServiceImpl implements EventService {
         getUser(userId);
         Event event = getEvent(eventId);
         UpdateEventUserRequest.StateAction stateAction = dto.getStateAction();
+        eventPublisher.publishEvent(EventsChanged.of(eventId));
 
         if (dto.getCategory() != null) {
             event.setCategory(getCat(dto.getCategory()));
@@ -104,7 +111,6 @@ public class EventServiceImpl implements EventService {
 
         completeFieldsForUpdated(dto, event);
 
-        Map<Long, Long> confirmed = getConfirmedRequests(List.of(event));
         Map<Long, Long> views = viewsStorage.getViews(Set.of(event));
 
         if (event.getEventState().equals(EventState.PUBLISHED)) {
@@ -127,7 +133,7 @@ public class EventServiceImpl implements EventService {
             throw new ConflictException(ErrorConstants.WRONG_COMBINATION_OF_INIT_AND_EVENT);
         }
 
-        return makeEventFull(List.of(eventStorage.save(event)), confirmed, views).get(0);
+        return makeEventFull(List.of(eventStorage.save(event)), views).get(0);
     }
 
     @Override
@@ -146,11 +152,12 @@ public class EventServiceImpl implements EventService {
     public EventRequestStatusUpdateResult confirmEventsParticipationRequests(long userId, long eventId,
                                                                              EventRequestStatusUpdateRequest requests) {
         getUser(userId);
-        Event event = getEvent(eventId);
+        Event event = getEventForUpdate(eventId);
+        eventPublisher.publishEvent(EventsChanged.of(eventId));
         long participationLimit = event.getParticipantLimit();
         EventRequestStatusUpdateRequest.Status status = requests.getStatus();
         Long[] ids = requests.getRequestIds();
-        long participationCount = requestStorage.getCountOfParticipation(eventId, Status.CONFIRMED);
+        long participationCount = event.getConfirmedRequests();
 
         if (event.getParticipantLimit() == 0 || !event.getRequestModeration()) {
             return getRequestWithoutLimitAndModeration(ids);
@@ -165,7 +172,7 @@ public class EventServiceImpl implements EventService {
         }
 
         if (status.toString().equals(Status.CONFIRMED.toString())) {
-            return confirmRequests(ids, participationLimit, participationCount);
+            return confirmRequests(eventId, ids, participationLimit, participationCount);
         } else if (status.toString().equals(Status.REJECTED.toString())) {
             return rejectRequests(ids);
         } else {
@@ -178,14 +185,20 @@ public class EventServiceImpl implements EventService {
     @Override
     public List<EventFullDto> getEventByAdminFiltering(List<Long> users, List<EventState> states, List<Long> categories,
                                                        LocalDateTime rangeStart, LocalDateTime rangeEnd,
-                                                       int from, int size) {
+                                                       int from, int size, PageCursor cursor) {
+
+        Specification<Event> spec = where(initiatorIn(users))
+                .and(stateIn(states))
+                .and(categoryIn(categories))
+                .and(eventDateFrom(rangeStart))
+                .and(eventDateTo(rangeEnd))
+                .and(idBefore(cursor));
 
-        List<Event> events = eventStorage.findEventByAdminParameters(users, states, categories, rangeStart,
-                rangeEnd, PageRequest.of(from / size, size, SortConstants.SORT_EVENT_BY_ID_DESC));
-        Map<Long, Long> confirmed = getConfirmedRequests(events);
+        List<Event> events = eventStorage.findEventsBy(spec,
+                OffsetPageRequest.of(cursor == null ? from : 0, size, SortConstants.SORT_EVENT_BY_ID_DESC));
         Map<Long, Long> views = viewsStorage.getViews(new HashSet<>(events));
 
-        return makeEventFull(events, confirmed, views);
+        return makeEventFull(events, views);
     }
 
     @Override
@@ -194,10 +207,10 @@ public class EventServiceImpl implements EventService {
         Event event = getEvent(eventId);
         LocalDateTime eventDate = event.getEventDate();
         UpdateEventAdminRequest.StateAction stateAction = dto.getStateAction();
+        eventPublisher.publishEvent(EventsChanged.of(eventId));
 
         completeFieldsForUpdated(dto, event);
 
-        Map<Long, Long> confirmed = getConfirmedRequests(List.of(event));
         Map<Long, Long> views = viewsStorage.getViews(Set.of(event));
 
         if (!eventDate.isAfter(LocalDateTime.now().plusHours(1L))) {
@@ -218,7 +231,7 @@ public class EventServiceImpl implements EventService {
             }
         }
 
-        return makeEventFull(List.of(event), confirmed, views).get(0);
+        return makeEventFull(List.of(event), views).get(0);
     }
 
     // For EventPublicController
@@ -228,6 +241,7 @@ public class EventServiceImpl implements EventService {
                                                                          LocalDateTime rangeStart, LocalDateTime rangeEnd,
                                                                          Boolean onlyAvailable, String sort, int from, int size) {
         Sort currentSort;
+        boolean sortByViews = false;
         if (rangeStart != null && rangeEnd != null && (rangeStart.isAfter(rangeEnd))) {
             throw new NotAvailableException(WRONG_CONDITION);
         }
@@ -236,26 +250,41 @@ public class EventServiceImpl implements EventService {
             currentSort = SortConstants.SORT_BY_EVENT_DATE_DESC;
         } else if (sort != null && sort.equalsIgnoreCase("VIEWS")) {
             currentSort = SortConstants.SORT_BY_VIEWS_DESC;
+            sortByViews = true;
+        } else if (text != null && !text.isBlank()) {
+            currentSort = Sort.unsorted();
         } else {
             currentSort = SortConstants.SORT_EVENT_BY_ID_DESC;
         }
 
-        List<Event> events = eventStorage.findEventByNotRegistrationUser(text, categories, isPaid, rangeStart, rangeEnd,
-                onlyAvailable, PageRequest.of(from / size, size, currentSort));
-        Map<Long, Long> confirmedRequest = getConfirmedRequests(events);
-        Map<Long, Long> views = viewsStorage.getViews(new HashSet<>(events));
-
-        return makeEventShort(events, confirmedRequest, views);
+        Specification<Event> spec = where(isPublished())
+                .and(textMatches(text))
+                .and(categoryIn(categories))
+                .and(isPaid(isPaid))
+                .and(eventDateFrom(rangeStart))
+                .and(eventDateTo(rangeEnd))
+                .and(isAvailable(onlyAvailable))
+                .and(orderByTextRelevance(text));
+
+        List<EventShortView> events = eventStorage.findEventShortViewsBy(spec,
+                OffsetPageRequest.of(from, size, currentSort));
+
+        if (sortByViews) {
+            // порядок страницы задает колонка events.views, поэтому и показываются ее значения, а не кэш просмотров
+            return events.stream()
+                    .map(event -> EventMapper.makeEventShortDto(event, event.getViews()))
+                    .collect(toList());
+        }
+        return makeEventShort(events);
     }
 
     @Override
     public EventFullDto getEventForNotRegistrationUserById(long eventId) {
         Event event = getEvent(eventId);
-        Map<Long, Long> confirmed = getConfirmedRequests(List.of(event));
         Map<Long, Long> views = viewsStorage.getViews(Set.of(event));
 
         if (event.getEventState().equals(EventState.PUBLISHED)) {
-            return makeEventFull(List.of(event), confirmed, views).get(0);
+            return makeEventFull(List.of(event), views).get(0);
         } else {
             throw new EntityNotFoundException(WRONG_EVENT_ID);
         }
@@ -271,49 +300,48 @@ public class EventServiceImpl implements EventService {
                 .orElseThrow(() -> new EntityNotFoundException(ErrorConstants.WRONG_EVENT_ID));
     }
 
+    private Event getEventForUpdate(long eventId) {
+        return eventStorage.findByIdForUpdate(eventId)
+                .orElseThrow(() -> new EntityNotFoundException(ErrorConstants.WRONG_EVENT_ID));
+    }
+
     private Category getCat(long catId) {
         return categoryStorage.findById(catId)
                 .orElseThrow(() -> new EntityNotFoundException(ErrorConstants.WRONG_CAT_ID));
     }
 
-    private EventRequestStatusUpdateResult confirmRequests(Long[] ids, long limit, long participationCount) {
+    private EventRequestStatusUpdateResult confirmRequests(long eventId, Long[] ids, long limit,
+                                                           long participationCount) {
         EventRequestStatusUpdateResult result = new EventRequestStatusUpdateResult();
         List<ParticipationRequest> requests = new ArrayList<>();
+        long confirmedCount = 0;
 
-        Map<Long, ParticipationRequest> requestsById = requestStorage.findParticipationRequestByIdIn(ids)
+        Map<Long, ParticipationRequest> requestsById = requestStorage.findParticipationRequestByIdInForUpdate(ids)
                 .stream()
                 .collect(Collectors.toMap(ParticipationRequest::getId, Function.identity()));
 
-        if (limit == 0) {
-            for (Long id : ids) {
-                ParticipationRequest request = requestsById.get(id);
-                if (!request.getStatus().equals(Status.PENDING)) {
-                    throw new ConflictException(ErrorConstants.WRONG_PARTICIPATION_STATUS);
-                } else {
-                    request.setStatus(Status.CONFIRMED);
-                    result.getConfirmedRequests().add(RequestMapper.makeRequestDto(requestStorage.save(request)));
-                }
-            }
-        } else {
-            for (Long id : ids) {
-                ParticipationRequest request = requestsById.get(id);
+        for (Long id : ids) {
+            ParticipationRequest request = requestsById.get(id);
 
-                if (!request.getStatus().equals(Status.PENDING)) {
-                    throw new ConflictException(ErrorConstants.WRONG_PARTICIPATION_STATUS);
+            if (!request.getStatus().equals(Status.PENDING)) {
+                throw new ConflictException(ErrorConstants.WRONG_PARTICIPATION_STATUS);
+            } else {
+                if (limit == 0 || participationCount + confirmedCount < limit) {
+                    request.setStatus(Status.CONFIRMED);
+                    confirmedCount++;
+                    result.getConfirmedRequests().add(RequestMapper.makeRequestDto(request));
                 } else {
-                    if (participationCount < limit) {
-                        request.setStatus(Status.CONFIRMED);
-                        requests.add(request);
-                        result.getConfirmedRequests().add(RequestMapper.makeRequestDto(request));
-                    } else {
-                        request.setStatus(Status.REJECTED);
-                        requests.add(request);
-                        result.getRejectedRequests().add(RequestMapper.makeRequestDto(request));
-                    }
+                    request.setStatus(Status.REJECTED);
+                    result.getRejectedRequests().add(RequestMapper.makeRequestDto(request));
                 }
+                requests.add(request);
             }
-            requestStorage.saveAll(requests);
         }
+
+        if (confirmedCount > 0 && eventStorage.incrementConfirmedRequestsWithinLimit(eventId, confirmedCount) == 0) {
+            throw new ConflictException(ErrorConstants.OUT_OF_LIMIT);
+        }
+        requestStorage.saveAll(requests);
         return result;
     }
 
@@ -321,7 +349,7 @@ public class EventServiceImpl implements EventService {
         EventRequestStatusUpdateResult result = new EventRequestStatusUpdateResult();
         List<ParticipationRequest> requests = new ArrayList<>();
 
-        Map<Long, ParticipationRequest> requestsById = requestStorage.findParticipationRequestByIdIn(ids)
+        Map<Long, ParticipationRequest> requestsById = requestStorage.findParticipationRequestByIdInForUpdate(ids)
                 .stream()
                 .collect(toMap(ParticipationRequest::getId, Function.identity()));
 
@@ -381,30 +409,21 @@ public class EventServiceImpl implements EventService {
         return event;
     }
 
-    private Map<Long, Long> getConfirmedRequests(List<Event> events) {
-        List<Long> eventsIds = events.stream()
-                .map(Event::getId)
-                .collect(toList());
-
-        return requestStorage.countByEvent(eventsIds).stream()
-                .collect(toMap(EventConfirmedParticipation::getEventId, EventConfirmedParticipation::getCount));
-    }
-
-    private List<EventFullDto> makeEventFull(List<Event> events, Map<Long, Long> confirmed, Map<Long, Long> views) {
+    private List<EventFullDto> makeEventFull(List<Event> events, Map<Long, Long> views) {
         return events.stream()
-                .map(event ->
-                        EventMapper.makeEventFullDto(event,
-                                confirmed.getOrDefault(event.getId(), 0L),
-                                views.getOrDefault(event.getId(), 0L)))
+                .map(event -> EventMapper.makeEventFullDto(event, views.getOrDefault(event.getId(), 0L)))
                 .collect(toList());
     }
 
-    private List<EventShortDto> makeEventShort(List<Event> events, Map<Long, Long> confirmed, Map<Long, Long> views) {
+    private List<EventShortDto> makeEventShort(List<EventShortView> events) {
+        Set<Long> publishedEventIds = events.stream()
+                .filter(event -> event.getEventState() == EventState.PUBLISHED)
+                .map(EventShortView::getId)
+                .collect(toSet());
+        Map<Long, Long> views = viewsStorage.getViewsByEventIds(publishedEventIds);
+
         return events.stream()
-                .map(event ->
-                        EventMapper.makeEventShortDto(event,
-                                confirmed.getOrDefault(event.getId(), 0L),
-                                views.getOrDefault(event.getId(), 0L)))
+                .map(event -> EventMapper.makeEventShortDto(event, views.getOrDefault(event.getId(), 0L)))
                 .collect(toList());
     }
 }
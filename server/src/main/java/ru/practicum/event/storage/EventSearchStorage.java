@@ -0,0 +1,15 @@
+package ru.practicum.event.storage;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventShortView;
+
+import java.util.List;
+
+public interface EventSearchStorage {
+
+    List<Event> findEventsBy(Specification<Event> spec, Pageable p);
+
+    List<EventShortView> findEventShortViewsBy(Specification<Event> spec, Pageable p);
+}
@@ -0,0 +1,85 @@
+package ru.practicum.event.storage;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.category.model.Category;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventShortView;
+import ru.practicum.user.model.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+/**
+ * В отличие от JpaSpecificationExecutor.findAll(spec, pageable) не выполняет count-запрос:
+ * для выдачи страницы списка общее число событий не нужно.
+ * Категория и инициатор загружаются тем же запросом, что и события.
+ * Для списков EventShortDto события читаются проекцией EventShortView, минуя persistence context.
+ */
+public class EventSearchStorageImpl implements EventSearchStorage {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Event> findEventsBy(Specification<Event> spec, Pageable p) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Event> query = cb.createQuery(Event.class);
+        Root<Event> root = query.from(Event.class);
+        root.fetch("category", JoinType.LEFT);
+        root.fetch("initiator", JoinType.LEFT);
+
+        return getPage(query.select(root), root, cb, spec, p);
+    }
+
+    @Override
+    public List<EventShortView> findEventShortViewsBy(Specification<Event> spec, Pageable p) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<EventShortView> query = cb.createQuery(EventShortView.class);
+        Root<Event> root = query.from(Event.class);
+        Join<Event, Category> category = root.join("category", JoinType.LEFT);
+        Join<Event, User> initiator = root.join("initiator", JoinType.LEFT);
+
+        query.select(cb.construct(EventShortView.class,
+                root.get("id"),
+                root.get("annotation"),
+                category.get("id"),
+                category.get("name"),
+                root.get("confirmedRequests"),
+                root.get("eventDate"),
+                initiator.get("id"),
+                initiator.get("name"),
+                root.get("isPaid"),
+                root.get("title"),
+                root.get("publishedOn"),
+                root.get("eventState"),
+                root.get("views")));
+
+        return getPage(query, root, cb, spec, p);
+    }
+
+    private <T> List<T> getPage(CriteriaQuery<T> query, Root<Event> root, CriteriaBuilder cb,
+                                Specification<Event> spec, Pageable p) {
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (p.getSort().isSorted()) {
+            query.orderBy(toOrders(p.getSort(), root, cb));
+        }
+
+        return entityManager.createQuery(query)
+                .setFirstResult((int) p.getOffset())
+                .setMaxResults(p.getPageSize())
+                .getResultList();
+    }
+}
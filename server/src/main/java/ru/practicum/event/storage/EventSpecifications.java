@@ -0,0 +1,117 @@
+package ru.practicum.event.storage;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.state.EventState;
+import ru.practicum.subscription.model.Subscription;
+import ru.practicum.utility.PageCursor;
+
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Условия поиска событий. Каждое условие возвращает null, если параметр фильтра не задан,
+ * поэтому в итоговый запрос попадают только реально заданные предикаты.
+ */
+@UtilityClass
+public class EventSpecifications {
+
+    public static Specification<Event> initiatorIn(Collection<Long> usersId) {
+        if (usersId == null || usersId.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> root.get("initiator").get("id").in(usersId);
+    }
+
+    public static Specification<Event> stateIn(Collection<EventState> states) {
+        if (states == null || states.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> root.get("eventState").in(states);
+    }
+
+    public static Specification<Event> isPublished() {
+        return (root, query, cb) -> cb.equal(root.get("eventState"), EventState.PUBLISHED);
+    }
+
+    public static Specification<Event> categoryIn(Collection<Long> categories) {
+        if (categories == null || categories.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> root.get("category").get("id").in(categories);
+    }
+
+    public static Specification<Event> isPaid(Boolean isPaid) {
+        if (isPaid == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("isPaid"), isPaid);
+    }
+
+    public static Specification<Event> eventDateFrom(LocalDateTime rangeStart) {
+        if (rangeStart == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.<LocalDateTime>get("eventDate"), rangeStart);
+    }
+
+    public static Specification<Event> eventDateTo(LocalDateTime rangeEnd) {
+        if (rangeEnd == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.<LocalDateTime>get("eventDate"), rangeEnd);
+    }
+
+    public static Specification<Event> textMatches(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.isTrue(cb.function("event_text_matches", Boolean.class,
+                root.get("annotation"), root.get("description"), cb.literal(text)));
+    }
+
+    public static Specification<Event> isAvailable(Boolean onlyAvailable) {
+        if (onlyAvailable == null || !onlyAvailable) {
+            return null;
+        }
+        return (root, query, cb) -> cb.or(cb.equal(root.get("participantLimit"), 0L),
+                cb.lessThan(root.<Long>get("confirmedRequests"), root.get("participantLimit")));
+    }
+
+    public static Specification<Event> idBefore(PageCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThan(root.<Long>get("id"), cursor.getLastId());
+    }
+
+    public static Specification<Event> initiatorFollowedBy(long subscriberId) {
+        return (root, query, cb) -> {
+            Subquery<Long> initiators = query.subquery(Long.class);
+            Root<Subscription> subscription = initiators.from(Subscription.class);
+            initiators.select(subscription.get("initiator").get("id"))
+                    .where(cb.equal(subscription.get("subscriber").get("id"), subscriberId));
+
+            return root.get("initiator").get("id").in(initiators);
+        };
+    }
+
+    /**
+     * Сортирует выборку по релевантности текстовому запросу, при равной релевантности - по убыванию id.
+     * Применяется только если в Pageable не передана собственная сортировка.
+     */
+    public static Specification<Event> orderByTextRelevance(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            query.orderBy(cb.desc(cb.function("event_text_rank", Float.class,
+                            root.get("annotation"), root.get("description"), cb.literal(text))),
+                    cb.desc(root.get("id")));
+            return null;
+        };
+    }
+}
@@ -1,81 +1,53 @@
 package ru.practicum.event.storage;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.event.model.Event;
-import ru.practicum.event.state.EventState;
 
-import java.time.LocalDateTime;
+import javax.persistence.LockModeType;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
-public interface EventStorage extends JpaRepository<Event, Long> {
+public interface EventStorage extends JpaRepository<Event, Long>, EventViewsStorage, EventSearchStorage {
 
-    List<Event> findEventByInitiatorId(long userId, Pageable p);
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    List<Event> findEventByInitiatorIdAndIdLessThan(long userId, long beforeId, Pageable p);
 
-    @Query("select e " +
-            "from Event e " +
-            "where (e.initiator.id IN :usersId or :usersId is null) " +
-            "AND (e.eventState IN :states or :states is null) " +
-            "AND (e.category.id IN :categories or :categories is null) " +
-            "AND (e.eventDate < cast(:rangeEnd AS date) or cast(:rangeStart AS date) is null) " +
-            "AND (e.eventDate > cast(:rangeStart AS date) or cast(:rangeEnd AS date) is null) ")
-    List<Event> findEventByAdminParameters(@Param("usersId") List<Long> usersId,
-                                           @Param("states") List<EventState> states,
-                                           @Param("categories") List<Long> categories,
-                                           @Param("rangeStart") LocalDateTime rangeStart,
-                                           @Param("rangeEnd") LocalDateTime rangeEnd,
-                                           Pageable p);
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    Set<Event> findEventByIdIn(Set<Long> ids);
 
+    boolean existsEventByCategoryId(long catId);
 
-    @Query("select e " +
+    @Query("select e.id " +
             "from Event e " +
             "where e.eventState = 'PUBLISHED' " +
-            "AND ((lower(e.annotation) like lower(concat('%', :text, '%'))) " +
-            "or (lower(e.description) like lower(concat('%', :text, '%'))) " +
-            "or (:text is null)) " +
-            "AND (e.category.id IN :categories or :categories is null) " +
-            "AND (e.isPaid = :isPaid or :isPaid is null) " +
-            "AND (e.eventDate < cast(:rangeEnd AS date) or cast(:rangeStart AS date) is null) " +
-            "AND (e.eventDate > cast(:rangeStart AS date) or cast(:rangeEnd AS date) is null) " +
-            "AND (:onlyAvailable = false OR ((:onlyAvailable = true AND e.participantLimit > " +
-            "(SELECT count(*) FROM ParticipationRequest pr WHERE e.id = pr.event.id))) " +
-            "OR (e.participantLimit > 0 ))")
-    List<Event> findEventByNotRegistrationUser(@Param("text") String text,
-                                               @Param("categories") List<Long> categories,
-                                               @Param("isPaid") Boolean isPaid,
-                                               @Param("rangeStart") LocalDateTime rangeStart,
-                                               @Param("rangeEnd") LocalDateTime rangeEnd,
-                                               @Param("onlyAvailable") Boolean onlyAvailable,
-                                               Pageable p);
-
-    Set<Event> findEventByIdIn(Set<Long> ids);
-
-    boolean existsEventByCategoryId(long catId);
+            "AND e.id > :afterId " +
+            "order by e.id")
+    List<Long> findPublishedEventIdsAfter(@Param("afterId") long afterId, Pageable p);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select e " +
             "from Event e " +
-            "where e.eventState = 'PUBLISHED' " +
-            "AND ((lower(e.annotation) like lower(concat('%', :text, '%'))) " +
-            "or (lower(e.description) like lower(concat('%', :text, '%'))) " +
-            "or (:text is null)) " +
-            "AND (e.category.id IN :categories or :categories is null) " +
-            "AND (e.isPaid = :isPaid or :isPaid is null) " +
-            "AND (e.eventDate < cast(:rangeEnd AS date) or cast(:rangeStart AS date) is null) " +
-            "AND (e.eventDate > cast(:rangeStart AS date) or cast(:rangeEnd AS date) is null) " +
-            "AND (:onlyAvailable = false OR ((:onlyAvailable = true AND e.participantLimit > " +
-            "(SELECT count(*) FROM ParticipationRequest pr WHERE e.id = pr.event.id))) " +
-            "OR (e.participantLimit > 0 )) " +
-            "AND (e.initiator.id IN (select (s.initiator.id) from Subscription s " +
-            "where :subscriberId = s.subscriber.id)) ")
-    List<Event> findFilterEventByInitiatorIdIn(@Param("text") String text,
-                                               @Param("categories") List<Long> categories,
-                                               @Param("isPaid") Boolean isPaid,
-                                               @Param("rangeStart") LocalDateTime rangeStart,
-                                               @Param("rangeEnd") LocalDateTime rangeEnd,
-                                               @Param("onlyAvailable") Boolean onlyAvailable,
-                                               Pageable p,
-                                               @Param("subscriberId") long subscriberId);
+            "where e.id = :id")
+    Optional<Event> findByIdForUpdate(@Param("id") long id);
+
+    @Modifying
+    @Query("update Event e " +
+            "set e.confirmedRequests = e.confirmedRequests + :count " +
+            "where e.id = :eventId " +
+            "AND (e.participantLimit = 0 OR e.confirmedRequests + :count <= e.participantLimit)")
+    int incrementConfirmedRequestsWithinLimit(@Param("eventId") long eventId, @Param("count") long count);
+
+    @Modifying
+    @Query("update Event e " +
+            "set e.confirmedRequests = e.confirmedRequests - 1 " +
+            "where e.id = :eventId " +
+            "AND e.confirmedRequests > 0")
+    int decrementConfirmedRequests(@Param("eventId") long eventId);
 }
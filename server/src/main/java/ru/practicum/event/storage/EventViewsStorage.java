@@ -0,0 +1,8 @@
+package ru.practicum.event.storage;
+
+import java.util.Map;
+
+public interface EventViewsStorage {
+
+    void updateViews(Map<Long, Long> viewsByEventId);
+}
@@ -0,0 +1,25 @@
+package ru.practicum.event.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class EventViewsStorageImpl implements EventViewsStorage {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void updateViews(Map<Long, Long> viewsByEventId) {
+        jdbcTemplate.batchUpdate("UPDATE events SET views = ? WHERE id = ? AND views <> ?",
+                new ArrayList<>(viewsByEventId.entrySet()), BATCH_SIZE, (ps, entry) -> {
+                    ps.setLong(1, entry.getValue());
+                    ps.setLong(2, entry.getKey());
+                    ps.setLong(3, entry.getValue());
+                });
+    }
+}
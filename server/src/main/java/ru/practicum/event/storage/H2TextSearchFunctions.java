@@ -0,0 +1,48 @@
+package ru.practicum.event.storage;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Замена полнотекстовых функций event_text_matches и event_text_rank из schema-postgresql.sql для профиля test на H2.
+ * Регистрируется в schema-h2.sql и сравнивает слова запроса с текстом события без учета регистра.
+ */
+public final class H2TextSearchFunctions {
+
+    private H2TextSearchFunctions() {
+    }
+
+    public static Boolean matches(String annotation, String description, String text) {
+        if (text == null) {
+            return null;
+        }
+        String document = document(annotation, description);
+        return Arrays.stream(tokens(text)).allMatch(document::contains);
+    }
+
+    public static Float rank(String annotation, String description, String text) {
+        if (text == null) {
+            return 0f;
+        }
+        String document = document(annotation, description);
+        String[] documentTokens = tokens(document);
+        if (documentTokens.length == 0) {
+            return 0f;
+        }
+        long occurrences = Arrays.stream(tokens(text))
+                .mapToLong(token -> Arrays.stream(documentTokens).filter(word -> word.contains(token)).count())
+                .sum();
+        return (float) occurrences / documentTokens.length;
+    }
+
+    private static String document(String annotation, String description) {
+        return ((annotation == null ? "" : annotation) + " " + (description == null ? "" : description))
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private static String[] tokens(String text) {
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .toArray(String[]::new);
+    }
+}
@@ -1,13 +0,0 @@
-package ru.practicum.request.model;
-
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
-public class EventConfirmedParticipation {
-    private long eventId;
-    private long count;
-}
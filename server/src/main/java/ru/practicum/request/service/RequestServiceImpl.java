@@ -1,16 +1,17 @@
 package ru.practicum.request.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventsChanged;
 import ru.practicum.event.state.EventState;
 import ru.practicum.event.storage.EventStorage;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.EntityNotFoundException;
 import ru.practicum.request.dto.ParticipationRequestDto;
 import ru.practicum.request.mapper.RequestMapper;
-import ru.practicum.request.model.EventConfirmedParticipation;
 import ru.practicum.request.model.ParticipationRequest;
 import ru.practicum.request.status.Status;
 import ru.practicum.request.storage.RequestStorage;
@@ -18,10 +19,8 @@ import ru.practicum.user.model.User;
 import ru.practicum.user.storage.UserStorage;
 
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
-import static java.util.stream.Collectors.*;
 import static ru.practicum.constants.error.ErrorConstants.*;
 
 @Service
@@ -32,6 +31,7 @@ public class RequestServiceImpl implements RequestService {
     private final RequestStorage requestStorage;
     private final UserStorage userStorage;
     private final EventStorage eventStorage;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -39,7 +39,6 @@ public class RequestServiceImpl implements RequestService {
         User user = getUser(userId);
         Event event = getEvent(eventId);
         ParticipationRequest request = RequestMapper.makeRequest(user, event);
-        Map<Long, Long> confirmedRequest = getConfirmedRequests(List.of(event));
         long limit = event.getParticipantLimit();
 
         if (requestStorage.existsByParticipantIdAndEventId(userId, eventId)) {
@@ -51,11 +50,15 @@ public class RequestServiceImpl implements RequestService {
         if (!event.getEventState().equals(EventState.PUBLISHED)) {
             throw new ConflictException(EVENT_NOT_PUBLISHED);
         }
-        if (limit != 0 && confirmedRequest.getOrDefault(eventId, 0L) == limit) {
+        if (limit != 0 && event.getConfirmedRequests() >= limit) {
             throw new ConflictException(OUT_OF_LIMIT_PARTICIPATION);
         }
         if (!event.getRequestModeration() || event.getParticipantLimit() == 0) {
+            if (eventStorage.incrementConfirmedRequestsWithinLimit(eventId, 1) == 0) {
+                throw new ConflictException(OUT_OF_LIMIT_PARTICIPATION);
+            }
             request.setStatus(Status.CONFIRMED);
+            eventPublisher.publishEvent(EventsChanged.of(eventId));
         }
 
         return RequestMapper.makeRequestDto(requestStorage.save(request));
@@ -75,7 +78,11 @@ public class RequestServiceImpl implements RequestService {
     @Transactional
     public ParticipationRequestDto cancelUserRequest(long userId, long requestId) {
         getUser(userId);
-        ParticipationRequest request = getRequest(requestId);
+        ParticipationRequest request = getRequestForUpdate(requestId);
+        if (request.getStatus() == Status.CONFIRMED) {
+            eventStorage.decrementConfirmedRequests(request.getEvent().getId());
+            eventPublisher.publishEvent(EventsChanged.of(request.getEvent().getId()));
+        }
         request.setStatus(Status.CANCELED);
 
         return RequestMapper.makeRequestDto(requestStorage.save(request));
@@ -91,17 +98,8 @@ public class RequestServiceImpl implements RequestService {
                 .orElseThrow(() -> new EntityNotFoundException(WRONG_EVENT_ID));
     }
 
-    private ParticipationRequest getRequest(long requestId) {
-        return requestStorage.findById(requestId)
+    private ParticipationRequest getRequestForUpdate(long requestId) {
+        return requestStorage.findByIdForUpdate(requestId)
                 .orElseThrow(() -> new EntityNotFoundException(WRONG_REQUEST_ID));
     }
-
-    private Map<Long, Long> getConfirmedRequests(List<Event> events) {
-        List<Long> eventsIds = events.stream()
-                .map(Event::getId)
-                .collect(toList());
-
-        return requestStorage.countByEvent(eventsIds).stream()
-                .collect(toMap(EventConfirmedParticipation::getEventId, EventConfirmedParticipation::getCount));
-    }
 }
@@ -1,13 +1,14 @@
 package ru.practicum.request.storage;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import ru.practicum.request.model.EventConfirmedParticipation;
 import ru.practicum.request.model.ParticipationRequest;
-import ru.practicum.request.status.Status;
 
+import javax.persistence.LockModeType;
 import java.util.List;
+import java.util.Optional;
 
 public interface RequestStorage extends JpaRepository<ParticipationRequest, Long> {
 
@@ -19,16 +20,16 @@ public interface RequestStorage extends JpaRepository<ParticipationRequest, Long
 
     List<ParticipationRequest> findParticipationRequestByIdIn(Long[] ids);
 
-    @Query("select Count(pr.id) " +
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select pr " +
             "from ParticipationRequest pr " +
-            "where pr.event.id = ?1 " +
-            "AND pr.status = ?2")
-    Long getCountOfParticipation(long eventId, Status status);
+            "where pr.id IN :ids " +
+            "order by pr.id")
+    List<ParticipationRequest> findParticipationRequestByIdInForUpdate(@Param("ids") Long[] ids);
 
-    @Query("select new ru.practicum.request.model.EventConfirmedParticipation(pr.event.id, count(pr.id)) " +
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select pr " +
             "from ParticipationRequest pr " +
-            "where pr.status = 'CONFIRMED' " +
-            "AND pr.event.id IN :ids " +
-            "group by pr.event.id")
-    List<EventConfirmedParticipation> countByEvent(@Param("ids") List<Long> ids);
+            "where pr.id = :id")
+    Optional<ParticipationRequest> findByIdForUpdate(@Param("id") long id);
 }
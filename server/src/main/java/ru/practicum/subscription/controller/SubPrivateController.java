@@ -10,7 +10,9 @@ import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.subscription.dto.SubShortDto;
 import ru.practicum.subscription.service.SubService;
 import ru.practicum.user.dto.UserShortDto;
+import ru.practicum.utility.PageCursor;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 import java.time.LocalDateTime;
@@ -75,11 +77,19 @@ public class SubPrivateController {
                                                       @RequestParam(defaultValue = "false") Boolean onlyAvailable,
                                                       @RequestParam(defaultValue = "0") @PositiveOrZero int from,
                                                       @RequestParam(defaultValue = "10") @Positive int size,
-                                                      @PathVariable long subscriberId) {
+                                                      @RequestParam(required = false) String cursor,
+                                                      @PathVariable long subscriberId,
+                                                      HttpServletResponse response) {
         log.debug("Получен запрос Get /users/subscriptions/subscriber/search/{subscriberId}?text={}&categories={}&paid={}" +
-                        "&rangeStart={}&rangeEnd={}&onlyAvailable={}&sort={}&from={}&size={}", text, categories, paid,
-                rangeStart, rangeEnd, onlyAvailable, size, from, size);
-        return subService.getEventsForSubscriber(text, categories, paid, rangeStart, rangeEnd,
-                onlyAvailable, from, size, subscriberId);
+                        "&rangeStart={}&rangeEnd={}&onlyAvailable={}&from={}&size={}&cursor={}", text, categories, paid,
+                rangeStart, rangeEnd, onlyAvailable, from, size, cursor);
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        List<EventShortDto> events = subService.getEventsForSubscriber(text, categories, paid, rangeStart, rangeEnd,
+                onlyAvailable, from, size, pageCursor, subscriberId);
+        if (pageCursor == null && text != null && !text.isBlank()) {
+            // выдача по релевантности листается через from: курсор по id не совпадает с ее порядком
+            return events;
+        }
+        return PageCursor.writeNext(response, events, size, EventShortDto::getId);
     }
 }
@@ -3,6 +3,7 @@ package ru.practicum.subscription.service;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.subscription.dto.SubShortDto;
 import ru.practicum.user.dto.UserShortDto;
+import ru.practicum.utility.PageCursor;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -22,6 +23,6 @@ public interface SubService {
 
     List<EventShortDto> getEventsForSubscriber(String text, List<Long> categories, Boolean isPaid,
                                                LocalDateTime rangeStart, LocalDateTime rangeEnd,
-                                               Boolean onlyAvailable, int from, int size,
+                                               Boolean onlyAvailable, int from, int size, PageCursor cursor,
                                                long subscriberId);
 }
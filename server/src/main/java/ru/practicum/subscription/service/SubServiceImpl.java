@@ -1,17 +1,18 @@
 package ru.practicum.subscription.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.mapper.EventMapper;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventShortView;
+import ru.practicum.event.state.EventState;
 import ru.practicum.event.storage.EventStorage;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.EntityNotFoundException;
-import ru.practicum.request.model.EventConfirmedParticipation;
-import ru.practicum.request.storage.RequestStorage;
 import ru.practicum.subscription.dto.SubShortDto;
 import ru.practicum.subscription.mapper.SubMapper;
 import ru.practicum.subscription.model.Subscription;
@@ -21,18 +22,22 @@ import ru.practicum.user.dto.UserShortDto;
 import ru.practicum.user.mapper.UserMapper;
 import ru.practicum.user.model.User;
 import ru.practicum.user.storage.UserStorage;
+import ru.practicum.utility.OffsetPageRequest;
+import ru.practicum.utility.PageCursor;
 import ru.practicum.utility.ViewsStorage;
 
 import java.time.LocalDateTime;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+import static org.springframework.data.jpa.domain.Specification.where;
 import static ru.practicum.constants.error.ErrorConstants.*;
 import static ru.practicum.constants.sort.SortConstants.SORT_EVENT_BY_ID_DESC;
+import static ru.practicum.event.storage.EventSpecifications.*;
 
 @Service
 @RequiredArgsConstructor
@@ -42,7 +47,6 @@ public class SubServiceImpl implements SubService {
     private final SubStorage subStorage;
     private final EventStorage eventStorage;
     private final UserStorage userStorage;
-    private final RequestStorage requestStorage;
     private final ViewsStorage viewsStorage;
 
     @Override
@@ -154,16 +158,26 @@ public class SubServiceImpl implements SubService {
     @Override
     public List<EventShortDto> getEventsForSubscriber(String text, List<Long> categories, Boolean isPaid,
                                                       LocalDateTime rangeStart, LocalDateTime rangeEnd,
-                                                      Boolean onlyAvailable, int from, int size,
+                                                      Boolean onlyAvailable, int from, int size, PageCursor cursor,
                                                       long subscriberId) {
 
-        List<Event> eventsByInitiator = eventStorage.findFilterEventByInitiatorIdIn(text, categories, isPaid, rangeStart, rangeEnd,
-                onlyAvailable, PageRequest.of(from / size, size, SORT_EVENT_BY_ID_DESC), subscriberId);
-        Map<Long, Long> confirmed = getConfirmedRequests(eventsByInitiator);
-        Map<Long, Long> views = viewsStorage.getViews(new HashSet<>(eventsByInitiator));
-
-
-        return makeEventShort(eventsByInitiator, confirmed, views);
+        boolean byRelevance = cursor == null && text != null && !text.isBlank();
+        Sort sort = byRelevance ? Sort.unsorted() : SORT_EVENT_BY_ID_DESC;
+        Specification<Event> spec = where(isPublished())
+                .and(initiatorFollowedBy(subscriberId))
+                .and(textMatches(text))
+                .and(categoryIn(categories))
+                .and(isPaid(isPaid))
+                .and(eventDateFrom(rangeStart))
+                .and(eventDateTo(rangeEnd))
+                .and(isAvailable(onlyAvailable))
+                .and(idBefore(cursor))
+                .and(byRelevance ? orderByTextRelevance(text) : null);
+
+        List<EventShortView> eventsByInitiator = eventStorage.findEventShortViewsBy(spec,
+                OffsetPageRequest.of(cursor == null ? from : 0, size, sort));
+
+        return makeEventShort(eventsByInitiator);
     }
 
     private User getUser(long userId) {
@@ -171,21 +185,15 @@ public class SubServiceImpl implements SubService {
                 .orElseThrow(() -> new EntityNotFoundException(WRONG_USER_ID));
     }
 
-    private Map<Long, Long> getConfirmedRequests(List<Event> events) {
-        List<Long> eventsIds = events.stream()
-                .map(Event::getId)
-                .collect(toList());
-
-        return requestStorage.countByEvent(eventsIds).stream()
-                .collect(toMap(EventConfirmedParticipation::getEventId, EventConfirmedParticipation::getCount));
-    }
+    private List<EventShortDto> makeEventShort(List<EventShortView> events) {
+        Set<Long> publishedEventIds = events.stream()
+                .filter(event -> event.getEventState() == EventState.PUBLISHED)
+                .map(EventShortView::getId)
+                .collect(toSet());
+        Map<Long, Long> views = viewsStorage.getViewsByEventIds(publishedEventIds);
 
-    private List<EventShortDto> makeEventShort(List<Event> events, Map<Long, Long> confirmed, Map<Long, Long> views) {
         return events.stream()
-                .map(event ->
-                        EventMapper.makeEventShortDto(event,
-                                confirmed.getOrDefault(event.getId(), 0L),
-                                views.getOrDefault(event.getId(), 0L)))
+                .map(event -> EventMapper.makeEventShortDto(event, views.getOrDefault(event.getId(), 0L)))
                 .collect(toList());
     }
 }
@@ -8,7 +8,9 @@ import org.springframework.web.bind.annotation.*;
 import ru.practicum.user.dto.NewUserRequest;
 import ru.practicum.user.dto.UserDto;
 import ru.practicum.user.service.UserService;
+import ru.practicum.utility.PageCursor;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
@@ -33,9 +35,12 @@ public class UserAdminController {
     @GetMapping
     public List<UserDto> getUsers(@RequestParam(required = false) List<Long> ids,
                                   @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                  @RequestParam(defaultValue = "10") @Positive int size) {
-        log.debug("Получен запрос Get /admin/users?ids={}&from={}&size={}", ids, from, size);
-        return service.getUsers(ids, from, size);
+                                  @RequestParam(defaultValue = "10") @Positive int size,
+                                  @RequestParam(required = false) String cursor,
+                                  HttpServletResponse response) {
+        log.debug("Получен запрос Get /admin/users?ids={}&from={}&size={}&cursor={}", ids, from, size, cursor);
+        return PageCursor.writeNext(response, service.getUsers(ids, from, size, PageCursor.decode(cursor)), size,
+                UserDto::getId);
     }
 
     @DeleteMapping("/{userId}")
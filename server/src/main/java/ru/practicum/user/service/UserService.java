@@ -3,13 +3,14 @@ package ru.practicum.user.service;
 import ru.practicum.user.dto.NewUserRequest;
 import ru.practicum.user.dto.UpdateUserDto;
 import ru.practicum.user.dto.UserDto;
+import ru.practicum.utility.PageCursor;
 
 import java.util.List;
 
 public interface UserService {
     UserDto addUser(NewUserRequest newUserRequest);
 
-    List<UserDto> getUsers(List<Long> ids, int from, int size);
+    List<UserDto> getUsers(List<Long> ids, int from, int size, PageCursor cursor);
 
     void deleteUser(long userId);
 
@@ -1,9 +1,10 @@
 package ru.practicum.user.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.event.model.EventsChanged;
 import ru.practicum.exception.EntityNotFoundException;
 import ru.practicum.user.dto.NewUserRequest;
 import ru.practicum.user.dto.UpdateUserDto;
@@ -11,6 +12,8 @@ import ru.practicum.user.dto.UserDto;
 import ru.practicum.user.mapper.UserMapper;
 import ru.practicum.user.model.User;
 import ru.practicum.user.storage.UserStorage;
+import ru.practicum.utility.OffsetPageRequest;
+import ru.practicum.utility.PageCursor;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -24,6 +27,7 @@ import static ru.practicum.constants.sort.SortConstants.SORT_USERS_BY_ID_ASC;
 public class UserServiceImpl implements UserService {
 
     private final UserStorage storage;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -33,13 +37,14 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public List<UserDto> getUsers(List<Long> ids, int from, int size) {
+    public List<UserDto> getUsers(List<Long> ids, int from, int size, PageCursor cursor) {
         List<User> users;
-        PageRequest pr = PageRequest.of(from / size, size, SORT_USERS_BY_ID_ASC);
+        long afterId = cursor == null ? 0 : cursor.getLastId();
+        OffsetPageRequest pr = OffsetPageRequest.of(cursor == null ? from : 0, size, SORT_USERS_BY_ID_ASC);
         if (ids != null) {
-            users = storage.findAllUserByIdIn(ids, pr);
+            users = storage.findAllUserByIdIn(ids, afterId, pr);
         } else {
-            users = storage.findAll(pr).getContent();
+            users = storage.findAllByIdGreaterThan(afterId, pr);
         }
         return users.stream()
                 .map(UserMapper::makeUserDto)
@@ -51,6 +56,7 @@ public class UserServiceImpl implements UserService {
     public void deleteUser(long userId) {
         getUser(userId);
         storage.deleteById(userId);
+        eventPublisher.publishEvent(EventsChanged.all());
     }
 
     @Override
@@ -64,6 +70,7 @@ public class UserServiceImpl implements UserService {
 
         if (updateUserDto.getName() != null && !updateUserDto.getName().isBlank()) {
             user.setName(updateUserDto.getName());
+            eventPublisher.publishEvent(EventsChanged.all());
         }
 
         if (updateUserDto.getIsPublic() != null && updateUserDto.getIsPublic() != user.isPublic()) {
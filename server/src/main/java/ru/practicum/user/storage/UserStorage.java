@@ -12,6 +12,9 @@ public interface UserStorage extends JpaRepository<User, Long> {
 
     @Query("select u " +
             "from User u " +
-            "where (u.id IN :ids or :ids is null)")
-    List<User> findAllUserByIdIn(@Param("ids") List<Long> ids, Pageable p);
+            "where (u.id IN :ids or :ids is null) " +
+            "AND u.id > :afterId")
+    List<User> findAllUserByIdIn(@Param("ids") List<Long> ids, @Param("afterId") long afterId, Pageable p);
+
+    List<User> findAllByIdGreaterThan(long afterId, Pageable p);
 }
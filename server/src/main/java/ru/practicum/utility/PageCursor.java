@@ -0,0 +1,61 @@
+package ru.practicum.utility;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.constants.headers.HeadersConstants;
+import ru.practicum.exception.NotAvailableException;
+
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import static ru.practicum.constants.error.ErrorConstants.WRONG_CURSOR;
+
+/**
+ * Непрозрачный курсор для постраничной выдачи по ключу (keyset pagination).
+ * Хранит id последней записи страницы: следующая страница начинается строго после него
+ * в порядке сортировки списка по id, поэтому ее стоимость не зависит от глубины,
+ * а вставка новых записей не сдвигает уже полученные страницы.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PageCursor {
+
+    private static final String PREFIX = "id:";
+
+    private final long lastId;
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new NotAvailableException(WRONG_CURSOR);
+            }
+            return new PageCursor(Long.parseLong(value.substring(PREFIX.length())));
+        } catch (IllegalArgumentException e) {
+            throw new NotAvailableException(WRONG_CURSOR);
+        }
+    }
+
+    /**
+     * Передает в заголовке ответа курсор на следующую страницу. Для неполной (последней) страницы заголовок не ставится.
+     */
+    public static <T> List<T> writeNext(HttpServletResponse response, List<T> page, int size,
+                                        ToLongFunction<T> idGetter) {
+        if (page.size() >= size) {
+            String next = new PageCursor(idGetter.applyAsLong(page.get(page.size() - 1))).encode();
+            response.setHeader(HeadersConstants.NEXT_CURSOR, next);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,163 @@
+package ru.practicum.utility;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Локальный кэш просмотров по id события.
+ * Запись считается актуальной ttl-ms миллисекунд, при превышении max-size вытесняются давно не читавшиеся записи.
+ * Одновременные промахи по одним и тем же id объединяются: загрузку выполняет первый поток, остальные ждут ее результат.
+ * Если загрузка не удалась, возвращаются устаревшие значения из кэша, а при их отсутствии - 0; такие значения не кэшируются.
+ */
+@Component
+@Slf4j
+public class ViewsCache {
+
+    private static final String CACHE_NAME = "views";
+
+    private final long ttlNanos;
+    private final Map<Long, CachedViews> entries;
+    private final Map<Long, CompletableFuture<Long>> inFlight = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter fallbacks;
+
+    @Autowired
+    public ViewsCache(@Value("${explore-with-me-statistic.views-cache.ttl-ms:30000}") long ttlMs,
+                      @Value("${explore-with-me-statistic.views-cache.max-size:10000}") int maxSize,
+                      MeterRegistry meterRegistry) {
+        this.ttlNanos = ttlMs * 1_000_000;
+        this.hits = cacheGets(meterRegistry, "hit");
+        this.misses = cacheGets(meterRegistry, "miss");
+        this.evictions = Counter.builder("cache.evictions")
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("cache.fallbacks")
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedViews> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        });
+        Gauge.builder("cache.size", entries, Map::size)
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает просмотры для всех переданных id. Отсутствующие или устаревшие значения загружаются loader,
+     * id, которых нет в ответе loader, получают 0 просмотров.
+     */
+    public Map<Long, Long> getAll(Set<Long> ids, Function<Set<Long>, Map<Long, Long>> loader) {
+        Map<Long, Long> views = new HashMap<>();
+        Map<Long, CompletableFuture<Long>> ownLoads = new HashMap<>();
+        Map<Long, CompletableFuture<Long>> foreignLoads = new HashMap<>();
+        long now = System.nanoTime();
+
+        for (Long id : ids) {
+            CachedViews cached = entries.get(id);
+            if (cached != null && now - cached.loadedAt < ttlNanos) {
+                hits.increment();
+                views.put(id, cached.views);
+                continue;
+            }
+            misses.increment();
+            CompletableFuture<Long> future = new CompletableFuture<>();
+            CompletableFuture<Long> existing = inFlight.putIfAbsent(id, future);
+            if (existing == null) {
+                ownLoads.put(id, future);
+            } else {
+                foreignLoads.put(id, existing);
+            }
+        }
+
+        if (!ownLoads.isEmpty()) {
+            views.putAll(load(ownLoads, loader));
+        }
+        for (Map.Entry<Long, CompletableFuture<Long>> load : foreignLoads.entrySet()) {
+            views.put(load.getKey(), join(load.getValue()));
+        }
+        return views;
+    }
+
+    public void invalidate(Collection<Long> ids) {
+        ids.forEach(entries::remove);
+    }
+
+    private Map<Long, Long> load(Map<Long, CompletableFuture<Long>> ownLoads,
+                                 Function<Set<Long>, Map<Long, Long>> loader) {
+        Map<Long, Long> loaded = new HashMap<>();
+        try {
+            Map<Long, Long> views = loader.apply(ownLoads.keySet());
+            long loadedAt = System.nanoTime();
+            for (Map.Entry<Long, CompletableFuture<Long>> load : ownLoads.entrySet()) {
+                Long value = views.getOrDefault(load.getKey(), 0L);
+                entries.put(load.getKey(), new CachedViews(value, loadedAt));
+                loaded.put(load.getKey(), value);
+                load.getValue().complete(value);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Не удалось получить просмотры {} событий, используются последние известные значения: {}",
+                    ownLoads.size(), e.getMessage());
+            fallbacks.increment(ownLoads.size());
+            for (Map.Entry<Long, CompletableFuture<Long>> load : ownLoads.entrySet()) {
+                CachedViews stale = entries.get(load.getKey());
+                Long value = stale == null ? 0L : stale.views;
+                loaded.put(load.getKey(), value);
+                load.getValue().complete(value);
+            }
+        } finally {
+            // при Error ожидающие потоки иначе зависли бы на незавершенных future
+            ownLoads.values().forEach(future -> future.completeExceptionally(
+                    new IllegalStateException("Загрузка просмотров прервана")));
+            ownLoads.forEach(inFlight::remove);
+        }
+        return loaded;
+    }
+
+    private Long join(CompletableFuture<Long> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Counter cacheGets(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static class CachedViews {
+        private final long views;
+        private final long loadedAt;
+
+        private CachedViews(long views, long loadedAt) {
+            this.views = views;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -1,8 +1,19 @@
 package ru.practicum.utility;
 import ru.practicum.event.model.Event;
+
 import java.util.*;
 
 public interface ViewsStorage {
 
     Map<Long, Long> getViews(Set<Event> events);
+
+    /**
+     * Просмотры опубликованных событий по их id.
+     */
+    Map<Long, Long> getViewsByEventIds(Set<Long> eventIds);
+
+    /**
+     * Запрашивает просмотры у сервиса статистики в обход кэша.
+     */
+    Map<Long, Long> loadViews(Set<Long> eventIds);
 }
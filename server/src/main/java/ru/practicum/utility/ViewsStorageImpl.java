@@ -1,67 +1,131 @@
 package ru.practicum.utility;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.client.StatsClient;
-import ru.practicum.dto.EndpointHitStatsDto;
 import ru.practicum.event.model.Event;
 import ru.practicum.event.state.EventState;
 
-import java.time.LocalDateTime;
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
-import static ru.practicum.constants.error.ErrorConstants.ID_START_FROM;
+import static java.util.stream.Collectors.toSet;
 
+/**
+ * Просмотры запрашиваются у сервиса статистики на отдельном ограниченном пуле потоков:
+ * промахи кэша делятся на части по chunk-size событий, части запрашиваются параллельно,
+ * и на все вместе отводится не более timeout-ms. При превышении времени или переполнении пула
+ * ViewsCache отдает последние известные значения.
+ */
 @Service
-@RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class ViewsStorageImpl implements ViewsStorage {
 
+    private static final String EVENTS_RESOURCE = "events";
+
     private final StatsClient statsClient;
-    private final ObjectMapper objectMapper;
+    private final String app;
+    private final ViewsCache viewsCache;
+    private final ExecutorService executor;
+    private final long timeoutMs;
+    private final int chunkSize;
+
+    @Autowired
+    public ViewsStorageImpl(StatsClient statsClient, ViewsCache viewsCache, @Value("${app.name}") String app,
+                            @Value("${explore-with-me-statistic.views.threads:4}") int threads,
+                            @Value("${explore-with-me-statistic.views.queue-capacity:100}") int queueCapacity,
+                            @Value("${explore-with-me-statistic.views.timeout-ms:1000}") long timeoutMs,
+                            @Value("${explore-with-me-statistic.views.chunk-size:100}") int chunkSize) {
+        this.statsClient = statsClient;
+        this.app = app;
+        this.viewsCache = viewsCache;
+        this.timeoutMs = timeoutMs;
+        this.chunkSize = chunkSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "views-loader-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
 
     public Map<Long, Long> getViews(Set<Event> events) {
-        List<Event> publishedEvents = events.stream()
+        Set<Long> eventIds = events.stream()
                 .filter(event -> event.getEventState() == EventState.PUBLISHED)
-                .collect(toList());
+                .map(Event::getId)
+                .collect(toSet());
+
+        return getViewsByEventIds(eventIds);
+    }
 
-        if (publishedEvents.isEmpty()) {
+    public Map<Long, Long> getViewsByEventIds(Set<Long> eventIds) {
+        if (eventIds.isEmpty()) {
             return Collections.emptyMap();
         }
 
-        List<String> uris = events.stream()
-                .map(Event::getId)
-                .map(id -> "/events/" + id)
-                .collect(toList());
-        String[] urisArray = uris.toArray(new String[]{});
+        return viewsCache.getAll(eventIds, this::loadViewsConcurrently);
+    }
 
-        LocalDateTime rangeStart = publishedEvents.stream()
-                .map(Event::getPublishedOn)
-                .min(Comparator.naturalOrder()).get();
+    public Map<Long, Long> loadViews(Set<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
 
-        List<EndpointHitStatsDto> stats = getStatsDto(rangeStart.minusHours(1), LocalDateTime.now(), urisArray,
-                true);
+        // просмотры считаются за все время: сервис статистики ведет эти счетчики при записи обращений
+        Map<Long, Long> views = new HashMap<>(eventIds.size() * 4 / 3 + 1);
+        ResponseEntity<Void> response = statsClient.getResourceTotals(app, EVENTS_RESOURCE, eventIds, true,
+                views::put);
 
-        return stats.stream()
-                .collect(toMap(endpoint -> Long.parseLong(endpoint.getUri().substring(ID_START_FROM)),
-                        EndpointHitStatsDto::getHits));
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new IllegalStateException("Сервис статистики ответил со статусом " + response.getStatusCode());
+        }
+        return views;
     }
 
-    private List<EndpointHitStatsDto> getStatsDto(LocalDateTime rangeStart, LocalDateTime rangeEnd, String[] urisArray,
-                                                  boolean unique) {
-        ResponseEntity<Object> responseEntity = statsClient.getStats(rangeStart, rangeEnd, urisArray, unique);
+    private Map<Long, Long> loadViewsConcurrently(Set<Long> eventIds) {
+        List<CompletableFuture<Map<Long, Long>>> loads = new ArrayList<>();
+        Set<Long> chunk = new HashSet<>();
+        for (Long eventId : eventIds) {
+            chunk.add(eventId);
+            if (chunk.size() == chunkSize) {
+                loads.add(submitLoad(chunk));
+                chunk = new HashSet<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            loads.add(submitLoad(chunk));
+        }
 
-        if (responseEntity.getBody() == null) {
-            return Collections.emptyList();
+        try {
+            CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            loads.forEach(load -> load.cancel(true));
+            throw new IllegalStateException("Сервис статистики не ответил за " + timeoutMs + " мс", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание ответа сервиса статистики прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
         }
 
-        return objectMapper.convertValue(responseEntity.getBody(), new TypeReference<>() {
-        });
+        Map<Long, Long> views = new HashMap<>();
+        loads.forEach(load -> views.putAll(load.join()));
+        return views;
+    }
+
+    private CompletableFuture<Map<Long, Long>> submitLoad(Set<Long> chunk) {
+        return CompletableFuture.supplyAsync(() -> loadViews(chunk), executor);
     }
 }
@@ -0,0 +1,67 @@
+package ru.practicum.utility;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.event.storage.EventStorage;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Периодически переносит просмотры опубликованных событий из сервиса статистики в колонку events.views,
+ * чтобы сортировка по просмотрам и пагинация выполнялись в базе данных. Страницы с sort=VIEWS показывают
+ * значения этой колонки, поэтому порядок и числа на странице согласованы, но отстают не более чем на interval-ms.
+ */
+@Component
+@Slf4j
+public class ViewsSyncJob {
+
+    private final EventStorage eventStorage;
+    private final ViewsStorage viewsStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public ViewsSyncJob(EventStorage eventStorage, ViewsStorage viewsStorage, TransactionTemplate transactionTemplate,
+                        @Value("${explore-with-me-statistic.views-sync.batch-size:500}") int batchSize) {
+        this.eventStorage = eventStorage;
+        this.viewsStorage = viewsStorage;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${explore-with-me-statistic.views-sync.interval-ms:60000}",
+            fixedDelayString = "${explore-with-me-statistic.views-sync.interval-ms:60000}")
+    public void syncViews() {
+        long afterId = 0;
+        int synced = 0;
+        try {
+            List<Long> eventIds;
+            do {
+                eventIds = eventStorage.findPublishedEventIdsAfter(afterId, PageRequest.of(0, batchSize));
+                if (eventIds.isEmpty()) {
+                    break;
+                }
+                Map<Long, Long> views = viewsStorage.loadViews(new HashSet<>(eventIds));
+                Map<Long, Long> viewsByEventId = eventIds.stream()
+                        .collect(toMap(Function.identity(), eventId -> views.getOrDefault(eventId, 0L)));
+                transactionTemplate.executeWithoutResult(status -> eventStorage.updateViews(viewsByEventId));
+
+                synced += eventIds.size();
+                afterId = eventIds.get(eventIds.size() - 1);
+            } while (eventIds.size() == batchSize);
+            log.debug("Обновлены просмотры {} опубликованных событий", synced);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обновить просмотры событий: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,2 @@
+CREATE ALIAS IF NOT EXISTS event_text_matches FOR 'ru.practicum.event.storage.H2TextSearchFunctions.matches';
+CREATE ALIAS IF NOT EXISTS event_text_rank FOR 'ru.practicum.event.storage.H2TextSearchFunctions.rank';
@@ -0,0 +1,15 @@
+CREATE OR REPLACE FUNCTION event_text_matches(annotation TEXT, description TEXT, text TEXT) RETURNS BOOLEAN
+    LANGUAGE SQL IMMUTABLE AS
+$$ SELECT to_tsvector('russian', coalesce(annotation, '') || ' ' || coalesce(description, ''))
+          @@ plainto_tsquery('russian', text) $$;
+
+CREATE OR REPLACE FUNCTION event_text_rank(annotation TEXT, description TEXT, text TEXT) RETURNS REAL
+    LANGUAGE SQL IMMUTABLE AS
+$$ SELECT ts_rank(to_tsvector('russian', coalesce(annotation, '') || ' ' || coalesce(description, '')),
+                  plainto_tsquery('russian', text)) $$;
+
+CREATE index IF NOT EXISTS Event_Text on events
+    USING GIN (to_tsvector('russian', coalesce(annotation, '') || ' ' || coalesce(description, '')));
+
+CREATE index IF NOT EXISTS Event_Available on events (state, event_date)
+    WHERE participant_limit = 0 OR confirmed_requests < participant_limit;
@@ -36,7 +36,9 @@ CREATE TABLE IF NOT EXISTS events (
     published_on TIMESTAMP WITHOUT TIME ZONE NOT NULL,
     request_moderation BOOLEAN NOT NULL,
     state VARCHAR(50) NOT NULL,
-    title VARCHAR(120) NOT NULL
+    title VARCHAR(120) NOT NULL,
+    confirmed_requests BIGINT NOT NULL DEFAULT 0,
+    views BIGINT NOT NULL DEFAULT 0
 );
 
 CREATE TABLE IF NOT EXISTS requests (
@@ -66,4 +68,10 @@ CREATE TABLE IF NOT EXISTS subscriptions (
     initiator_id BIGINT REFERENCES users(id) ON DELETE CASCADE,
     sub_status VARCHAR(30) NOT NULL
 );
-CREATE UNIQUE index IF NOT EXISTS Sub_Init on subscriptions (subscriber_id, initiator_id);
\ No newline at end of file
+CREATE UNIQUE index IF NOT EXISTS Sub_Init on subscriptions (subscriber_id, initiator_id);
+CREATE UNIQUE index IF NOT EXISTS Request_User_Event on requests (user_id, event_id);
+CREATE index IF NOT EXISTS Event_Views on events (views DESC, id DESC);
+CREATE index IF NOT EXISTS Event_State_Date on events (state, event_date);
+CREATE index IF NOT EXISTS Event_Category_State on events (category_id, state);
+CREATE index IF NOT EXISTS Event_Initiator_State on events (initiator, state);
+CREATE index IF NOT EXISTS Event_Initiator_Id on events (initiator, id DESC);
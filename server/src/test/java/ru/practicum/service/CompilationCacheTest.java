@@ -0,0 +1,135 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.category.dto.CategoryDto;
+import ru.practicum.compilation.dto.CompilationDto;
+import ru.practicum.compilation.model.CompilationChanged;
+import ru.practicum.compilation.service.CompilationCache;
+import ru.practicum.compilation.service.CompilationCache.CachedCompilation;
+import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventsChanged;
+import ru.practicum.user.dto.UserShortDto;
+import ru.practicum.utility.ViewsStorage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class CompilationCacheTest {
+
+    private final LocalDateTime publishedOn = LocalDateTime.of(2023, 1, 1, 12, 0);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final ViewsStorageStub viewsStorage = new ViewsStorageStub();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CompilationCache cache;
+
+    @BeforeEach
+    void createCache() {
+        cache = new CompilationCache(viewsStorage, 2, meterRegistry);
+    }
+
+    @Test
+    void getShouldLoadCompilationOnce() {
+        cache.get(1, this::load);
+        cache.get(1, this::load);
+
+        assertThat(loads.get(), equalTo(1));
+    }
+
+    @Test
+    void onEventsChangedShouldEvictOnlyCompilationsWithEvent() {
+        cache.getAll(List.of(1L, 2L), ids -> List.of(load(1), load(2)));
+
+        cache.onEventsChanged(EventsChanged.of(101));
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+
+        assertThat(loads.get(), equalTo(3));
+    }
+
+    @Test
+    void onCompilationChangedShouldEvictCompilation() {
+        cache.get(1, this::load);
+
+        cache.onCompilationChanged(new CompilationChanged(1));
+        cache.get(1, this::load);
+
+        assertThat(loads.get(), equalTo(2));
+    }
+
+    @Test
+    void getShouldEvictLeastRecentlyReadCompilationOverMaxSize() {
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+        cache.get(1, this::load);
+
+        cache.get(3, this::load);
+        double indexedEvents = meterRegistry.get("cache.index.size").gauge().value();
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+
+        assertThat(loads.get(), equalTo(4));
+        assertThat(indexedEvents, equalTo(2.0));
+    }
+
+    @Test
+    void evictedCompilationShouldBeReindexedWhenLoadedAgain() {
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+        cache.get(3, this::load);
+        cache.get(1, this::load);
+
+        cache.onEventsChanged(EventsChanged.of(101));
+        cache.get(1, this::load);
+
+        assertThat(loads.get(), equalTo(5));
+    }
+
+    @Test
+    void refreshViewsShouldUpdateCachedViews() {
+        cache.get(1, this::load);
+        viewsStorage.views = Map.of(101L, 7L);
+
+        cache.refreshViews();
+        CompilationDto compilation = cache.get(1, this::load);
+
+        assertThat(compilation.getEvents().iterator().next().getViews(), equalTo(7L));
+        assertThat(loads.get(), equalTo(1));
+    }
+
+    private CachedCompilation load(long compilationId) {
+        loads.incrementAndGet();
+        long eventId = 100 + compilationId;
+        EventShortDto event = new EventShortDto("annotation", new CategoryDto(1, "category"), 0, publishedOn,
+                eventId, new UserShortDto(1, "user"), false, "title", 0);
+        return new CachedCompilation(new CompilationDto(compilationId, Set.of(event), true, "compilation"),
+                Set.of(eventId));
+    }
+
+    private static class ViewsStorageStub implements ViewsStorage {
+        private Map<Long, Long> views = Map.of();
+
+        @Override
+        public Map<Long, Long> getViews(Set<Event> events) {
+            return views;
+        }
+
+        @Override
+        public Map<Long, Long> getViewsByEventIds(Set<Long> eventIds) {
+            return views;
+        }
+
+        @Override
+        public Map<Long, Long> loadViews(Set<Long> eventIds) {
+            return views;
+        }
+    }
+}
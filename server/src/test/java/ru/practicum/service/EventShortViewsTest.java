@@ -0,0 +1,74 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.event.model.EventShortView;
+import ru.practicum.event.service.EventServiceImpl;
+import ru.practicum.event.state.EventState;
+import ru.practicum.event.storage.EventStorage;
+import ru.practicum.subscription.service.SubServiceImpl;
+import ru.practicum.utility.ViewsStorage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EventShortViewsTest {
+
+    private final LocalDateTime now = LocalDateTime.of(2023, 1, 1, 12, 0);
+
+    @Mock
+    private EventStorage eventStorage;
+    @Mock
+    private ViewsStorage viewsStorage;
+    @InjectMocks
+    private EventServiceImpl eventService;
+    @InjectMocks
+    private SubServiceImpl subService;
+
+    @BeforeEach
+    void returnPublishedAndPendingEvents() {
+        when(eventStorage.findEventShortViewsBy(any(), any())).thenReturn(List.of(
+                makeView(1, EventState.PUBLISHED), makeView(2, EventState.PENDING)));
+        when(viewsStorage.getViewsByEventIds(Set.of(1L))).thenReturn(Map.of(1L, 10L));
+    }
+
+    @Test
+    void publicSearchRequestsViewsOnlyForPublishedEvents() {
+        List<EventShortDto> events = eventService.getEventForNotRegistrationUserByFiltering(null, null, null,
+                null, null, false, null, 0, 10);
+
+        verify(viewsStorage).getViewsByEventIds(Set.of(1L));
+        assertThat(events.get(0).getViews(), equalTo(10L));
+        assertThat(events.get(1).getViews(), equalTo(0L));
+    }
+
+    @Test
+    void subscriberSearchRequestsViewsOnlyForPublishedEvents() {
+        List<EventShortDto> events = subService.getEventsForSubscriber(null, null, null, null, null, false,
+                0, 10, null, 1);
+
+        verify(viewsStorage).getViewsByEventIds(Set.of(1L));
+        assertThat(events.get(0).getViews(), equalTo(10L));
+        assertThat(events.get(1).getViews(), equalTo(0L));
+    }
+
+    private EventShortView makeView(long id, EventState state) {
+        // publishedOn задается при создании события, поэтому опубликованность видна только по состоянию
+        return new EventShortView(id, "annotation", 1, "category", 0, now.plusDays(1), 1, "initiator", false,
+                "title", now, state, 0);
+    }
+}
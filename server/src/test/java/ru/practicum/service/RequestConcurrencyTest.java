@@ -0,0 +1,158 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.category.model.Category;
+import ru.practicum.category.storage.CategoryStorage;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.Location;
+import ru.practicum.event.service.EventService;
+import ru.practicum.event.state.EventState;
+import ru.practicum.event.storage.EventStorage;
+import ru.practicum.exception.ConflictException;
+import ru.practicum.request.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.request.dto.EventRequestStatusUpdateResult;
+import ru.practicum.request.model.ParticipationRequest;
+import ru.practicum.request.service.RequestService;
+import ru.practicum.request.status.Status;
+import ru.practicum.request.storage.RequestStorage;
+import ru.practicum.user.model.User;
+import ru.practicum.user.storage.UserStorage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@SpringBootTest
+class RequestConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final long LIMIT = 10;
+
+    @Autowired
+    private RequestService requestService;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private CategoryStorage categoryStorage;
+    @Autowired
+    private EventStorage eventStorage;
+    @Autowired
+    private RequestStorage requestStorage;
+
+    private User initiator;
+    private Category category;
+
+    @BeforeEach
+    void createEnvironment() {
+        initiator = createUser();
+        category = categoryStorage.save(new Category(0, "category-" + UUID.randomUUID()));
+    }
+
+    @Test
+    void concurrentRequestsNeverExceedParticipantLimit() throws Exception {
+        Event event = createPublishedEvent(false);
+        List<User> participants = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            participants.add(createUser());
+        }
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (User participant : participants) {
+            tasks.add(() -> {
+                try {
+                    requestService.addRequest(participant.getId(), event.getId());
+                } catch (ConflictException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        runConcurrently(tasks);
+
+        assertThat(countConfirmed(event), equalTo(LIMIT));
+        assertThat(eventStorage.findById(event.getId()).orElseThrow().getConfirmedRequests(), equalTo(LIMIT));
+        assertThat(rejected.get(), equalTo(participants.size() - (int) LIMIT));
+    }
+
+    @Test
+    void concurrentConfirmationsNeverExceedParticipantLimit() throws Exception {
+        Event event = createPublishedEvent(true);
+        List<Long> requestIds = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            requestIds.add(requestService.addRequest(createUser().getId(), event.getId()).getId());
+        }
+        AtomicInteger confirmed = new AtomicInteger();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < requestIds.size(); i += 5) {
+            Long[] ids = requestIds.subList(i, i + 5).toArray(new Long[0]);
+            tasks.add(() -> {
+                try {
+                    EventRequestStatusUpdateResult result = eventService.confirmEventsParticipationRequests(
+                            initiator.getId(), event.getId(),
+                            new EventRequestStatusUpdateRequest(ids, EventRequestStatusUpdateRequest.Status.CONFIRMED));
+                    confirmed.addAndGet(result.getConfirmedRequests().size());
+                } catch (ConflictException ignored) {
+                    // лимит уже исчерпан другим потоком
+                }
+                return null;
+            });
+        }
+        runConcurrently(tasks);
+
+        assertThat(confirmed.get(), equalTo((int) LIMIT));
+        assertThat(countConfirmed(event), equalTo(LIMIT));
+        assertThat(eventStorage.findById(event.getId()).orElseThrow().getConfirmedRequests(), equalTo(LIMIT));
+    }
+
+    private void runConcurrently(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long countConfirmed(Event event) {
+        return requestStorage.findParticipationRequestByEventId(event.getId()).stream()
+                .map(ParticipationRequest::getStatus)
+                .filter(Status.CONFIRMED::equals)
+                .count();
+    }
+
+    private User createUser() {
+        String name = UUID.randomUUID().toString();
+        return userStorage.save(new User(0, name + "@mail.ru", name, true));
+    }
+
+    private Event createPublishedEvent(boolean requestModeration) {
+        LocalDateTime now = LocalDateTime.now();
+        return eventStorage.save(new Event(0, "annotation", category, now, "description", now.plusDays(1),
+                initiator, new Location(55.75f, 37.62f), false, LIMIT, now, requestModeration,
+                EventState.PUBLISHED, "title", 0, 0));
+    }
+}
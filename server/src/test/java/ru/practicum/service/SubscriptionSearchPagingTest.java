@@ -0,0 +1,108 @@
+package ru.practicum.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.category.model.Category;
+import ru.practicum.category.storage.CategoryStorage;
+import ru.practicum.constants.headers.HeadersConstants;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.Location;
+import ru.practicum.event.state.EventState;
+import ru.practicum.event.storage.EventStorage;
+import ru.practicum.subscription.model.Subscription;
+import ru.practicum.subscription.storage.SubStorage;
+import ru.practicum.subscription.substatus.SubStatus;
+import ru.practicum.user.model.User;
+import ru.practicum.user.storage.UserStorage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SubscriptionSearchPagingTest {
+
+    private static final int EVENTS = 8;
+    private static final int PAGE_SIZE = 3;
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper mapper;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private CategoryStorage categoryStorage;
+    @Autowired
+    private EventStorage eventStorage;
+    @Autowired
+    private SubStorage subStorage;
+
+    private final String word = "word" + UUID.randomUUID().toString().replace("-", "");
+    private final Set<Long> matchingIds = new HashSet<>();
+    private User subscriber;
+
+    @BeforeEach
+    void createEvents() {
+        LocalDateTime now = LocalDateTime.now();
+        subscriber = createUser();
+        User initiator = createUser();
+        subStorage.save(new Subscription(0, now, subscriber, initiator, SubStatus.CONFIRMED));
+        Category category = categoryStorage.save(new Category(0, "category-" + UUID.randomUUID()));
+
+        for (int i = 0; i < EVENTS; i++) {
+            // релевантность повторяется через одно событие, поэтому порядок внутри равной релевантности задает id
+            String annotation = (word + " ").repeat(i % 3 + 1) + "annotation";
+            Event event = eventStorage.save(new Event(0, annotation, category, now, "description", now.plusDays(1),
+                    initiator, new Location(55.75f, 37.62f), false, 0L, now, true, EventState.PUBLISHED,
+                    "title", 0, 0));
+            matchingIds.add(event.getId());
+        }
+        eventStorage.save(new Event(0, "other annotation", category, now, "description", now.plusDays(1),
+                initiator, new Location(55.75f, 37.62f), false, 0L, now, true, EventState.PUBLISHED, "title", 0, 0));
+    }
+
+    @Test
+    void pageTextSearchByRelevanceWithoutGapsOrDuplicates() throws Exception {
+        List<Long> pagedIds = new ArrayList<>();
+        for (int from = 0; from < EVENTS + PAGE_SIZE; from += PAGE_SIZE) {
+            MvcResult result = mvc.perform(get("/users/subscriptions/subscriber/search/{subscriberId}",
+                            subscriber.getId())
+                            .param("text", word)
+                            .param("from", String.valueOf(from))
+                            .param("size", String.valueOf(PAGE_SIZE)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            assertThat(result.getResponse().getHeader(HeadersConstants.NEXT_CURSOR), nullValue());
+            for (JsonNode event : mapper.readTree(result.getResponse().getContentAsString())) {
+                pagedIds.add(event.get("id").asLong());
+            }
+        }
+
+        assertThat(pagedIds.size(), equalTo(EVENTS));
+        assertThat(new HashSet<>(pagedIds), equalTo(matchingIds));
+    }
+
+    private User createUser() {
+        String name = "user-" + UUID.randomUUID();
+        return userStorage.save(new User(0, name + "@mail.ru", name, true));
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.utility.ViewsCache;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ViewsCacheTest {
+
+    private final ViewsCache cache = new ViewsCache(30_000, 100, new SimpleMeterRegistry());
+
+    @Test
+    void waitingLoadShouldFailWhenLoaderThrowsError() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Map<Long, Long>> owner = CompletableFuture.supplyAsync(() -> cache.getAll(Set.of(1L),
+                ids -> {
+                    loading.countDown();
+                    await(release);
+                    throw new OutOfMemoryError("loader failed");
+                }));
+        assertThat(loading.await(5, TimeUnit.SECONDS), equalTo(true));
+
+        CompletableFuture<Map<Long, Long>> waiter = CompletableFuture.supplyAsync(() -> cache.getAll(Set.of(1L),
+                ids -> Map.of(1L, 10L)));
+        // второй поток должен дождаться загрузки первого, а не начать свою
+        Thread.sleep(50);
+        release.countDown();
+
+        ExecutionException ownerFailure = assertThrows(ExecutionException.class,
+                () -> owner.get(5, TimeUnit.SECONDS));
+        ExecutionException waiterFailure = assertThrows(ExecutionException.class,
+                () -> waiter.get(5, TimeUnit.SECONDS));
+        assertThat(ownerFailure.getCause(), instanceOf(OutOfMemoryError.class));
+        assertThat(waiterFailure.getCause(), instanceOf(RuntimeException.class));
+        assertThat(cache.getAll(Set.of(1L), ids -> Map.of(1L, 10L)), equalTo(Map.of(1L, 10L)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
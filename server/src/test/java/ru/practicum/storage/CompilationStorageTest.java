@@ -0,0 +1,70 @@
+package ru.practicum.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import ru.practicum.category.model.Category;
+import ru.practicum.compilation.model.Compilation;
+import ru.practicum.compilation.storage.CompilationStorage;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.Location;
+import ru.practicum.event.state.EventState;
+import ru.practicum.user.model.User;
+import ru.practicum.utility.OffsetPageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static ru.practicum.constants.sort.SortConstants.SORT_EVENT_BY_ID_DESC;
+
+@DataJpaTest
+class CompilationStorageTest {
+
+    private static final int COMPILATIONS = 5;
+
+    @Autowired
+    private TestEntityManager tem;
+    @Autowired
+    private CompilationStorage compilationStorage;
+
+    @BeforeEach
+    void createCompilations() {
+        LocalDateTime now = LocalDateTime.now();
+        User initiator = tem.persist(new User(0, "initiator@mail.ru", "initiator", true));
+        Category category = tem.persist(new Category(0, "category"));
+        Event first = tem.persist(new Event(0, "annotation", category, now, "description", now.plusDays(1),
+                initiator, new Location(55.75f, 37.62f), false, 0L, now, true, EventState.PUBLISHED, "first", 0, 0));
+        Event second = tem.persist(new Event(0, "annotation", category, now, "description", now.plusDays(1),
+                initiator, new Location(55.75f, 37.62f), false, 0L, now, true, EventState.PUBLISHED, "second", 0, 0));
+
+        for (int i = 0; i < COMPILATIONS; i++) {
+            tem.persist(new Compilation(0, Set.of(first, second), i % 2 == 0, "compilation" + i));
+        }
+        tem.flush();
+        tem.clear();
+    }
+
+    @Test
+    void findIdsShouldPageCompilationsWithoutEvents() {
+        List<Long> ids = compilationStorage.findIds(Long.MAX_VALUE, OffsetPageRequest.of(1, 2, SORT_EVENT_BY_ID_DESC));
+        List<Compilation> compilations = compilationStorage.findDistinctByIdIn(ids, SORT_EVENT_BY_ID_DESC);
+
+        assertThat(compilations.size(), equalTo(2));
+        assertThat(compilations.get(0).getTitle(), equalTo("compilation3"));
+        assertThat(compilations.get(1).getTitle(), equalTo("compilation2"));
+        assertThat(compilations.get(0).getEvents().size(), equalTo(2));
+    }
+
+    @Test
+    void findIdsByPinnedShouldPageOnlyPinnedCompilations() {
+        List<Long> ids = compilationStorage.findIdsByPinned(true, Long.MAX_VALUE,
+                OffsetPageRequest.of(0, COMPILATIONS, SORT_EVENT_BY_ID_DESC));
+
+        assertThat(ids.size(), equalTo(3));
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.storage;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import ru.practicum.category.model.Category;
+import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.event.mapper.EventMapper;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.EventShortView;
+import ru.practicum.event.model.Location;
+import ru.practicum.event.state.EventState;
+import ru.practicum.event.storage.EventStorage;
+import ru.practicum.user.model.User;
+import ru.practicum.utility.OffsetPageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.springframework.data.jpa.domain.Specification.where;
+import static ru.practicum.constants.sort.SortConstants.SORT_EVENT_BY_ID_DESC;
+import static ru.practicum.event.storage.EventSpecifications.categoryIn;
+import static ru.practicum.event.storage.EventSpecifications.isPublished;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class EventStorageTest {
+
+    private static final int EVENTS = 6;
+
+    @Autowired
+    private TestEntityManager tem;
+    @Autowired
+    private EventStorage eventStorage;
+
+    private Statistics statistics;
+    private User initiator;
+    private final List<Long> categoryIds = new ArrayList<>();
+    private final Set<Long> eventIds = new HashSet<>();
+
+    @BeforeEach
+    void createEvents() {
+        LocalDateTime now = LocalDateTime.now();
+        initiator = tem.persist(new User(0, "first@mail.ru", "first", true));
+        User secondInitiator = tem.persist(new User(0, "second@mail.ru", "second", true));
+
+        for (int i = 0; i < EVENTS; i++) {
+            Category category = tem.persist(new Category(0, "category" + i));
+            Event event = tem.persist(new Event(0, "annotation", category, now, "description", now.plusDays(1),
+                    i % 2 == 0 ? initiator : secondInitiator, new Location(55.75f, 37.62f), false, 0L, now, true,
+                    EventState.PUBLISHED, "title", 0, 0));
+            categoryIds.add(category.getId());
+            eventIds.add(event.getId());
+        }
+        tem.flush();
+        tem.clear();
+
+        statistics = tem.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findEventsByShouldLoadCategoriesAndInitiatorsInSingleStatement() {
+        List<Event> events = eventStorage.findEventsBy(where(isPublished()).and(categoryIn(categoryIds)),
+                OffsetPageRequest.of(0, EVENTS, SORT_EVENT_BY_ID_DESC));
+        events.forEach(event -> EventMapper.makeEventShortDto(event, 0));
+
+        assertThat(events.size(), equalTo(EVENTS));
+        assertThat(statistics.getPrepareStatementCount(), equalTo(1L));
+    }
+
+    @Test
+    void findEventShortViewsByShouldSelectShortDtoColumns() {
+        List<EventShortView> views = eventStorage.findEventShortViewsBy(where(isPublished()).and(categoryIn(categoryIds)),
+                OffsetPageRequest.of(0, EVENTS, SORT_EVENT_BY_ID_DESC));
+        EventShortDto last = EventMapper.makeEventShortDto(views.get(EVENTS - 1), 0);
+
+        assertThat(views.size(), equalTo(EVENTS));
+        assertThat(last.getCategory().getName(), equalTo("category0"));
+        assertThat(last.getInitiator().getName(), equalTo("first"));
+        assertThat(statistics.getPrepareStatementCount(), equalTo(1L));
+        assertThat(statistics.getEntityLoadCount(), equalTo(0L));
+    }
+
+    @Test
+    void findEventByInitiatorIdShouldLoadCategoriesInSingleStatement() {
+        List<Event> events = eventStorage.findEventByInitiatorIdAndIdLessThan(initiator.getId(), Long.MAX_VALUE,
+                OffsetPageRequest.of(0, EVENTS, SORT_EVENT_BY_ID_DESC));
+        events.forEach(event -> EventMapper.makeEventFullDto(event, 0));
+
+        assertThat(events.size(), equalTo(EVENTS / 2));
+        assertThat(statistics.getPrepareStatementCount(), equalTo(1L));
+    }
+
+    @Test
+    void findEventByIdInShouldLoadCategoriesAndInitiatorsInSingleStatement() {
+        Set<Event> events = eventStorage.findEventByIdIn(eventIds);
+        events.forEach(event -> EventMapper.makeEventShortDto(event, 0));
+
+        assertThat(events.size(), equalTo(EVENTS));
+        assertThat(statistics.getPrepareStatementCount(), equalTo(1L));
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.client;
+
+@FunctionalInterface
+public interface ResourceHitsConsumer {
+
+    void accept(long resourceId, long hits);
+}
@@ -0,0 +1,95 @@
+package ru.practicum.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Предохранитель для вызовов сервиса статистики.
+ * После failure-threshold подряд неудачных вызовов (исключение или ответ 5xx) цепь размыкается на open-ms:
+ * вызовы сразу завершаются StatsUnavailableException, не занимая потоки ожиданием. По истечении open-ms
+ * пропускается один пробный вызов, успех которого замыкает цепь, а неудача размыкает ее снова.
+ */
+@Component
+@Slf4j
+public class StatsCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInProgress = new AtomicBoolean();
+    private volatile long openedAt;
+    private volatile boolean open;
+
+    @Autowired
+    public StatsCircuitBreaker(
+            @Value("${explore-with-me-statistic.client.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${explore-with-me-statistic.client.circuit-breaker.open-ms:10000}") long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+    }
+
+    public <T> ResponseEntity<T> call(Supplier<ResponseEntity<T>> request) {
+        boolean trial = false;
+        if (open) {
+            if (System.nanoTime() - openedAt < openNanos || !trialInProgress.compareAndSet(false, true)) {
+                throw new StatsUnavailableException("Сервис статистики временно недоступен");
+            }
+            trial = true;
+        }
+
+        try {
+            ResponseEntity<T> response = request.get();
+            if (response.getStatusCode().is5xxServerError()) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            return response;
+        } catch (RuntimeException e) {
+            onFailure();
+            throw e;
+        } finally {
+            if (trial) {
+                trialInProgress.set(false);
+            }
+        }
+    }
+
+    public State getState() {
+        if (!open) {
+            return State.CLOSED;
+        }
+        return System.nanoTime() - openedAt < openNanos ? State.OPEN : State.HALF_OPEN;
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (open) {
+            open = false;
+            log.info("Сервис статистики снова доступен, цепь замкнута");
+        }
+    }
+
+    private void onFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt = System.nanoTime();
+            if (!open) {
+                open = true;
+                log.warn("Сервис статистики недоступен после {} неудачных вызовов, цепь разомкнута",
+                        consecutiveFailures.get());
+            }
+        }
+    }
+}
@@ -1,41 +1,162 @@
 package ru.practicum.client;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.dto.EndpointHitDto;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Collectors;
 
 @Service
 public class StatsClient extends BaseClient {
 
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // id передаются в строке GET-запроса: 200 id по 19 цифр занимают около 4,4 КБ, в пределах обычных 8 КБ
+    // на строку запроса у серверов и прокси
+    static final int MAX_IDS_PER_REQUEST = 200;
+
+    private final StatsCircuitBreaker circuitBreaker;
 
     @Autowired
-    public StatsClient(@Value("${explore-with-me-statistic.server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public StatsClient(@Value("${explore-with-me-statistic.server.url}") String serverUrl, RestTemplateBuilder builder,
+                       StatsCircuitBreaker circuitBreaker,
+                       @Value("${explore-with-me-statistic.client.connect-timeout-ms:1000}") int connectTimeoutMs,
+                       @Value("${explore-with-me-statistic.client.read-timeout-ms:2000}") int readTimeoutMs,
+                       @Value("${explore-with-me-statistic.client.max-connections:50}") int maxConnections) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                        .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(
+                                makeHttpClient(connectTimeoutMs, readTimeoutMs, maxConnections)))
                         .build()
         );
+        this.circuitBreaker = circuitBreaker;
     }
 
     public ResponseEntity<Object> postEndpointHit(EndpointHitDto dto) {
-        return post("/hit", dto);
+        return circuitBreaker.call(() -> post("/hit", dto));
+    }
+
+    public ResponseEntity<Object> postEndpointHits(List<EndpointHitDto> dtos) {
+        return circuitBreaker.call(() -> post("/hit/batch", dtos));
     }
 
     public ResponseEntity<Object> getStats(LocalDateTime start, LocalDateTime end, @Nullable String[] uris, @Nullable Boolean unique) {
         Map<String, Object> parameters = new HashMap<>();
+        String path = makeStatsPath(start, end, uris, unique, parameters);
+
+        return circuitBreaker.call(() -> get(path, parameters));
+    }
+
+    /**
+     * Читает ответ /stats потоково и передает каждую пару uri - hits в hitsConsumer,
+     * не собирая промежуточный список DTO. Тело ответа с ошибкой не разбирается.
+     */
+    public ResponseEntity<Void> getStats(LocalDateTime start, LocalDateTime end, @Nullable String[] uris,
+                                         @Nullable Boolean unique, ObjLongConsumer<String> hitsConsumer) {
+        Map<String, Object> parameters = new HashMap<>();
+        String path = makeStatsPath(start, end, uris, unique, parameters);
+
+        return circuitBreaker.call(() -> {
+            try {
+                return rest.execute(path, HttpMethod.GET,
+                        request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)),
+                        response -> readStats(response, hitsConsumer), parameters);
+            } catch (HttpStatusCodeException e) {
+                return ResponseEntity.status(e.getStatusCode()).build();
+            }
+        });
+    }
+
+    /**
+     * Запрашивает статистику ресурсов одного типа (например, events) по их числовым id
+     * и передает каждую пару id - hits в hitsConsumer. Период должен начинаться не раньше срока хранения
+     * сырых обращений, иначе сервис статистики отвечает 400. Больше MAX_IDS_PER_REQUEST id запрашиваются
+     * несколькими запросами, при первом ответе с ошибкой остальные не отправляются.
+     */
+    public ResponseEntity<Void> getResourceStats(LocalDateTime start, LocalDateTime end, String type,
+                                                 Collection<Long> ids, @Nullable Boolean unique,
+                                                 ResourceHitsConsumer hitsConsumer) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("start", start.format(FORMATTER));
+        parameters.put("end", end.format(FORMATTER));
+        parameters.put("type", type);
+        parameters.put("unique", unique != null && unique);
+
+        return getResourceHits("/stats/resources?start={start}&end={end}&type={type}&ids={ids}&unique={unique}",
+                parameters, ids, hitsConsumer);
+    }
+
+    /**
+     * Запрашивает счетчики ресурсов одного типа приложения app за все время, которые сервис статистики
+     * ведет при записи обращений, и передает каждую пару id - hits в hitsConsumer.
+     * Уникальные ip в этих счетчиках - оценка по HyperLogLog. Id делятся на запросы так же, как в getResourceStats.
+     */
+    public ResponseEntity<Void> getResourceTotals(String app, String type, Collection<Long> ids,
+                                                  @Nullable Boolean unique, ResourceHitsConsumer hitsConsumer) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("app", app);
+        parameters.put("type", type);
+        parameters.put("unique", unique != null && unique);
+
+        return getResourceHits("/stats/totals/resources?app={app}&type={type}&ids={ids}&unique={unique}",
+                parameters, ids, hitsConsumer);
+    }
+
+    private ResponseEntity<Void> getResourceHits(String path, Map<String, Object> parameters, Collection<Long> ids,
+                                                 ResourceHitsConsumer hitsConsumer) {
+        List<Long> idList = new ArrayList<>(ids);
+        ResponseEntity<Void> response;
+        int from = 0;
+        do {
+            List<Long> chunk = idList.subList(from, Math.min(from + MAX_IDS_PER_REQUEST, idList.size()));
+            parameters.put("ids", chunk.stream().map(String::valueOf).collect(Collectors.joining(",")));
+            response = getResourceHits(path, parameters, hitsConsumer);
+            from += MAX_IDS_PER_REQUEST;
+        } while (from < idList.size() && response.getStatusCode().is2xxSuccessful());
+        return response;
+    }
+
+    private ResponseEntity<Void> getResourceHits(String path, Map<String, Object> parameters,
+                                                 ResourceHitsConsumer hitsConsumer) {
+        return circuitBreaker.call(() -> {
+            try {
+                return rest.execute(path, HttpMethod.GET,
+                        request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)),
+                        response -> readResourceStats(response, hitsConsumer), parameters);
+            } catch (HttpStatusCodeException e) {
+                return ResponseEntity.status(e.getStatusCode()).build();
+            }
+        });
+    }
+
+    private static String makeStatsPath(LocalDateTime start, LocalDateTime end, @Nullable String[] uris,
+                                        @Nullable Boolean unique, Map<String, Object> parameters) {
         parameters.put("start", start.format(FORMATTER));
         parameters.put("end", end.format(FORMATTER));
 
@@ -52,6 +173,87 @@ public class StatsClient extends BaseClient {
             builder.append("&unique={unique}");
         }
 
-        return get(builder.toString(), parameters);
+        return builder.toString();
+    }
+
+    private static ResponseEntity<Void> readStats(ClientHttpResponse response, ObjLongConsumer<String> hitsConsumer)
+            throws IOException {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return ResponseEntity.status(response.getStatusCode()).build();
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(response.getBody())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Ожидался массив статистики, получен " + parser.currentToken());
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String uri = null;
+                long hits = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("uri".equals(field)) {
+                        uri = parser.getText();
+                    } else if ("hits".equals(field)) {
+                        hits = parser.getLongValue();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                if (uri != null) {
+                    hitsConsumer.accept(uri, hits);
+                }
+            }
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    private static ResponseEntity<Void> readResourceStats(ClientHttpResponse response,
+                                                          ResourceHitsConsumer hitsConsumer) throws IOException {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return ResponseEntity.status(response.getStatusCode()).build();
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(response.getBody())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Ожидался массив статистики, получен " + parser.currentToken());
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                long id = 0;
+                long hits = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("id".equals(field)) {
+                        id = parser.getLongValue();
+                    } else if ("hits".equals(field)) {
+                        hits = parser.getLongValue();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                hitsConsumer.accept(id, hits);
+            }
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    private static CloseableHttpClient makeHttpClient(int connectTimeoutMs, int readTimeoutMs, int maxConnections) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        // все запросы идут на один хост сервиса статистики
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setConnectionRequestTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package ru.practicum.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import ru.practicum.dto.EndpointHitDto;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неблокирующая отправка просмотров в сервис статистики.
+ * Просмотры складываются в ограниченную очередь и отправляются фоновым потоком пачками:
+ * как только набралось batch-size записей, либо по истечении flush-interval-ms с момента первой записи в пачке.
+ * При переполнении очереди новые просмотры отбрасываются, вызывающий поток никогда не ждет сервис статистики.
+ * Пачки, которые не удалось доставить (в том числе при разомкнутом предохранителе), тоже отбрасываются
+ * и учитываются в getDroppedHits.
+ */
+@Service
+@Slf4j
+public class StatsHitSender {
+
+    private final StatsClient statsClient;
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long shutdownTimeoutMs;
+    private final ExecutorService flusher;
+    private final AtomicLong droppedHits = new AtomicLong();
+    private volatile boolean running = true;
+
+    @Autowired
+    public StatsHitSender(StatsClient statsClient,
+                          @Value("${explore-with-me-statistic.hits.queue-capacity:10000}") int queueCapacity,
+                          @Value("${explore-with-me-statistic.hits.batch-size:100}") int batchSize,
+                          @Value("${explore-with-me-statistic.hits.flush-interval-ms:500}") long flushIntervalMs,
+                          @Value("${explore-with-me-statistic.hits.shutdown-timeout-ms:5000}") long shutdownTimeoutMs) {
+        this.statsClient = statsClient;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.flusher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-hit-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.execute(this::flushLoop);
+    }
+
+    public boolean send(EndpointHitDto dto) {
+        if (running && queue.offer(dto)) {
+            // остановка могла начаться после проверки: запись, которую уже не заберут, отбрасывается здесь
+            if (running || !queue.remove(dto)) {
+                return true;
+            }
+        }
+        long dropped = droppedHits.incrementAndGet();
+        log.debug("Очередь просмотров переполнена, запись отброшена. Всего отброшено {}", dropped);
+        return false;
+    }
+
+    /**
+     * Просмотры, отброшенные при переполнении очереди, после остановки или не доставленные в сервис статистики.
+     */
+    public long getDroppedHits() {
+        return droppedHits.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        flusher.shutdown();
+        boolean terminated = false;
+        try {
+            terminated = flusher.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS);
+            if (!terminated) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            flusher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        // записи, положенные в очередь после выхода flushLoop, отправляются здесь, если фоновый поток завершился
+        List<EndpointHitDto> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (terminated) {
+            flush(rest);
+        } else if (!rest.isEmpty()) {
+            long dropped = droppedHits.addAndGet(rest.size());
+            log.warn("Не удалось отправить в сервис статистики {} просмотров до остановки. Всего отброшено {}",
+                    rest.size(), dropped);
+        }
+    }
+
+    private void flushLoop() {
+        List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queue.drainTo(batch);
+                flush(batch);
+                return;
+            }
+            flush(batch);
+        }
+    }
+
+    private void collectBatch(List<EndpointHitDto> batch) throws InterruptedException {
+        EndpointHitDto first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long timeLeft = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || timeLeft <= 0 || !running) {
+                return;
+            }
+            EndpointHitDto next = queue.poll(timeLeft, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<EndpointHitDto> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            ResponseEntity<Object> response = statsClient.postEndpointHits(batch);
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                long dropped = droppedHits.addAndGet(batch.size());
+                log.warn("Сервис статистики отклонил {} просмотров со статусом {}. Всего отброшено {}", batch.size(),
+                        response.getStatusCode(), dropped);
+            }
+        } catch (StatsUnavailableException e) {
+            long dropped = droppedHits.addAndGet(batch.size());
+            log.warn("Сервис статистики недоступен, {} просмотров отброшено. Всего отброшено {}", batch.size(),
+                    dropped);
+        } catch (RuntimeException e) {
+            long dropped = droppedHits.addAndGet(batch.size());
+            log.warn("Не удалось отправить {} просмотров в сервис статистики: {}. Всего отброшено {}", batch.size(),
+                    e.getMessage(), dropped);
+        } finally {
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.client;
+
+public class StatsUnavailableException extends RuntimeException {
+    public StatsUnavailableException(final String message) {
+        super(message);
+    }
+}
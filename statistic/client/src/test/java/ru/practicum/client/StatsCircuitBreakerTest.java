@@ -0,0 +1,98 @@
+package ru.practicum.client;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StatsCircuitBreakerTest {
+
+    private static final long OPEN_MS = 50;
+
+    private final StatsCircuitBreaker circuitBreaker = new StatsCircuitBreaker(2, OPEN_MS);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void openAfterConsecutiveFailuresAndThenOk() {
+        call(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(circuitBreaker.getState(), equalTo(StatsCircuitBreaker.State.CLOSED));
+        assertThrows(IllegalStateException.class, () -> circuitBreaker.call(() -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("connection refused");
+        }));
+
+        assertThat(circuitBreaker.getState(), equalTo(StatsCircuitBreaker.State.OPEN));
+        assertThrows(StatsUnavailableException.class, () -> call(HttpStatus.OK));
+        assertThat(calls.get(), equalTo(2));
+    }
+
+    @Test
+    void successAndClientErrorsResetFailuresAndThenOk() {
+        call(HttpStatus.INTERNAL_SERVER_ERROR);
+        call(HttpStatus.OK);
+        call(HttpStatus.INTERNAL_SERVER_ERROR);
+        call(HttpStatus.BAD_REQUEST);
+        call(HttpStatus.INTERNAL_SERVER_ERROR);
+
+        assertThat(circuitBreaker.getState(), equalTo(StatsCircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    void closeAfterSuccessfulTrialAndThenOk() throws InterruptedException {
+        openCircuit();
+        Thread.sleep(OPEN_MS * 2);
+        assertThat(circuitBreaker.getState(), equalTo(StatsCircuitBreaker.State.HALF_OPEN));
+
+        ResponseEntity<Void> response = call(HttpStatus.OK);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(circuitBreaker.getState(), equalTo(StatsCircuitBreaker.State.CLOSED));
+        call(HttpStatus.OK);
+        assertThat(calls.get(), equalTo(4));
+    }
+
+    @Test
+    void reopenAfterFailedTrialAndThenOk() throws InterruptedException {
+        openCircuit();
+        Thread.sleep(OPEN_MS * 2);
+
+        call(HttpStatus.SERVICE_UNAVAILABLE);
+
+        assertThat(circuitBreaker.getState(), equalTo(StatsCircuitBreaker.State.OPEN));
+        assertThrows(StatsUnavailableException.class, () -> call(HttpStatus.OK));
+        assertThat(calls.get(), equalTo(3));
+    }
+
+    @Test
+    void allowSingleTrialWhileHalfOpenAndThenOk() throws InterruptedException {
+        openCircuit();
+        Thread.sleep(OPEN_MS * 2);
+
+        ResponseEntity<Void> response = circuitBreaker.call(() -> {
+            calls.incrementAndGet();
+            assertThrows(StatsUnavailableException.class, () -> call(HttpStatus.OK));
+            return ResponseEntity.ok().build();
+        });
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(calls.get(), equalTo(3));
+    }
+
+    private void openCircuit() {
+        call(HttpStatus.INTERNAL_SERVER_ERROR);
+        call(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(circuitBreaker.getState(), equalTo(StatsCircuitBreaker.State.OPEN));
+    }
+
+    private ResponseEntity<Void> call(HttpStatus status) {
+        return circuitBreaker.call(() -> {
+            calls.incrementAndGet();
+            return ResponseEntity.status(status).build();
+        });
+    }
+}
@@ -0,0 +1,141 @@
+package ru.practicum.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.queryParam;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class StatsClientTest {
+
+    private final LocalDateTime start = LocalDateTime.of(2023, 1, 1, 10, 0, 0);
+    private final LocalDateTime end = LocalDateTime.of(2023, 1, 2, 10, 0, 0);
+    private final String[] uris = new String[]{"/events/1", "/events/2"};
+    private final Map<String, Long> hits = new LinkedHashMap<>();
+    private StatsClient statsClient;
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void createClient() {
+        statsClient = new StatsClient("http://localhost:9090", new RestTemplateBuilder(),
+                new StatsCircuitBreaker(5, 10_000), 1000, 2000, 5);
+        server = MockRestServiceServer.bindTo(statsClient.rest).build();
+    }
+
+    @Test
+    void getStatsStreamsUriHitsAndSkipsOtherFieldsAndThenOk() {
+        server.expect(requestTo("http://localhost:9090/stats?start=2023-01-01%2010%3A00%3A00"
+                        + "&end=2023-01-02%2010%3A00%3A00&uris=%2Fevents%2F1%2C%2Fevents%2F2&unique=true"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("[{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":10},"
+                        + "{\"hits\":3,\"extra\":{\"nested\":[1,2]},\"uri\":\"/events/2\"},"
+                        + "{\"app\":\"ewm-main-service\",\"hits\":7}]", MediaType.APPLICATION_JSON));
+
+        ResponseEntity<Void> response = statsClient.getStats(start, end, uris, true, hits::put);
+
+        server.verify();
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(hits, equalTo(Map.of("/events/1", 10L, "/events/2", 3L)));
+    }
+
+    @Test
+    void getStatsWithEmptyArrayAndThenOk() {
+        server.expect(method(HttpMethod.GET))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        ResponseEntity<Void> response = statsClient.getStats(start, end, null, null, hits::put);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(hits.isEmpty(), equalTo(true));
+    }
+
+    @Test
+    void getStatsReturnsErrorStatusWithoutParsingBodyAndThenOk() {
+        server.expect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.BAD_REQUEST)
+                        .body("{\"error\":\"Start must be before End\"}")
+                        .contentType(MediaType.APPLICATION_JSON));
+
+        ResponseEntity<Void> response = statsClient.getStats(end, start, uris, false, hits::put);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+        assertThat(hits.isEmpty(), equalTo(true));
+    }
+
+    @Test
+    void getStatsFailsOnUnexpectedBodyAndThenOk() {
+        server.expect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"uri\":\"/events/1\",\"hits\":10}", MediaType.APPLICATION_JSON));
+
+        assertThrows(ResourceAccessException.class, () -> statsClient.getStats(start, end, uris, false, hits::put));
+        assertThat(hits.isEmpty(), equalTo(true));
+    }
+
+    @Test
+    void getResourceTotalsStreamsIdHitsAndThenOk() {
+        Map<Long, Long> resourceHits = new LinkedHashMap<>();
+        server.expect(requestTo("http://localhost:9090/stats/totals/resources?app=ewm-main-service&type=events"
+                        + "&ids=1%2C2&unique=false"))
+                .andRespond(withSuccess("[{\"id\":1,\"hits\":10},{\"id\":2,\"hits\":0}]",
+                        MediaType.APPLICATION_JSON));
+
+        statsClient.getResourceTotals("ewm-main-service", "events", List.of(1L, 2L), false, resourceHits::put);
+
+        server.verify();
+        assertThat(resourceHits, equalTo(Map.of(1L, 10L, 2L, 0L)));
+    }
+
+    @Test
+    void getResourceTotalsSplitsIdsOverRequestsAndThenOk() {
+        List<Long> ids = LongStream.rangeClosed(1, StatsClient.MAX_IDS_PER_REQUEST + 1).boxed()
+                .collect(Collectors.toList());
+        Map<Long, Long> resourceHits = new LinkedHashMap<>();
+        server.expect(queryParam("ids", ids.subList(0, StatsClient.MAX_IDS_PER_REQUEST).stream()
+                        .map(String::valueOf).collect(Collectors.joining("%2C"))))
+                .andRespond(withSuccess("[{\"id\":1,\"hits\":10}]", MediaType.APPLICATION_JSON));
+        server.expect(queryParam("ids", String.valueOf(StatsClient.MAX_IDS_PER_REQUEST + 1)))
+                .andRespond(withSuccess("[{\"id\":201,\"hits\":3}]", MediaType.APPLICATION_JSON));
+
+        ResponseEntity<Void> response = statsClient.getResourceTotals("ewm-main-service", "events", ids, false,
+                resourceHits::put);
+
+        server.verify();
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(resourceHits, equalTo(Map.of(1L, 10L, 201L, 3L)));
+    }
+
+    @Test
+    void getResourceTotalsStopsAfterErrorStatusAndThenOk() {
+        List<Long> ids = LongStream.rangeClosed(1, StatsClient.MAX_IDS_PER_REQUEST + 1).boxed()
+                .collect(Collectors.toList());
+        server.expect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.BAD_REQUEST));
+
+        ResponseEntity<Void> response = statsClient.getResourceTotals("ewm-main-service", "events", ids, false,
+                (id, hits) -> {
+                });
+
+        server.verify();
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+    }
+}
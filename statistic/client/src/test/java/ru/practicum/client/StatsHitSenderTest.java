@@ -0,0 +1,168 @@
+package ru.practicum.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StatsHitSenderTest {
+
+    private final EndpointHitDto dto = new EndpointHitDto("appText", "uriText", "ipText",
+            LocalDateTime.of(2023, 1, 1, 10, 30, 15));
+    // пачка очищается после отправки, поэтому запоминаются размеры пачек, а не сами списки
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private StatsClient statsClient;
+    private StatsHitSender sender;
+
+    @BeforeEach
+    void createClient() {
+        statsClient = mock(StatsClient.class);
+        when(statsClient.postEndpointHits(any())).thenAnswer(invocation -> {
+            batchSizes.add(invocation.<List<EndpointHitDto>>getArgument(0).size());
+            return ResponseEntity.status(201).build();
+        });
+    }
+
+    @AfterEach
+    void shutdownSender() {
+        sender.shutdown();
+    }
+
+    @Test
+    void sendFullBatchWithoutWaitingForIntervalAndThenOk() throws InterruptedException {
+        sender = new StatsHitSender(statsClient, 100, 3, 60_000, 100);
+
+        for (int i = 0; i < 3; i++) {
+            sender.send(dto);
+        }
+
+        awaitSentHits(3);
+        assertThat(batchSizes, equalTo(List.of(3)));
+    }
+
+    @Test
+    void sendPartialBatchAfterIntervalAndThenOk() throws InterruptedException {
+        sender = new StatsHitSender(statsClient, 100, 100, 50, 5_000);
+
+        sender.send(dto);
+        sender.send(dto);
+
+        awaitSentHits(2);
+        assertThat(sender.getDroppedHits(), equalTo(0L));
+    }
+
+    @Test
+    void dropHitsWhenQueueIsFullAndThenOk() throws InterruptedException {
+        CountDownLatch posting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.<List<EndpointHitDto>>getArgument(0).size());
+            posting.countDown();
+            release.await();
+            return ResponseEntity.status(201).build();
+        }).when(statsClient).postEndpointHits(any());
+        sender = new StatsHitSender(statsClient, 1, 1, 50, 5_000);
+
+        sender.send(dto);
+        assertThat(posting.await(5, TimeUnit.SECONDS), equalTo(true));
+        boolean queued = sender.send(dto);
+        boolean dropped = !sender.send(dto);
+        release.countDown();
+
+        assertThat(queued, equalTo(true));
+        assertThat(dropped, equalTo(true));
+        assertThat(sender.getDroppedHits(), equalTo(1L));
+        awaitSentHits(2);
+    }
+
+    @Test
+    void countBatchDroppedByOpenCircuitAndThenOk() throws InterruptedException {
+        doThrow(new StatsUnavailableException("Сервис статистики временно недоступен"))
+                .when(statsClient).postEndpointHits(any());
+        sender = new StatsHitSender(statsClient, 100, 2, 50, 5_000);
+
+        sender.send(dto);
+        sender.send(dto);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sender.getDroppedHits() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(sender.getDroppedHits(), equalTo(2L));
+    }
+
+    @Test
+    void shutdownSendsQueuedHitsAndRejectsNewOnesAndThenOk() {
+        sender = new StatsHitSender(statsClient, 100, 100, 200, 5_000);
+
+        for (int i = 0; i < 5; i++) {
+            sender.send(dto);
+        }
+        sender.shutdown();
+
+        assertThat(sentHits(), equalTo(5));
+        assertThat(sender.send(dto), equalTo(false));
+        assertThat(sender.getDroppedHits(), equalTo(1L));
+    }
+
+    @Test
+    void shutdownDuringSendsLosesNoHitsUncountedAndThenOk() throws InterruptedException {
+        sender = new StatsHitSender(statsClient, 100_000, 100, 5, 5_000);
+        AtomicBoolean stopped = new AtomicBoolean();
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> senders = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                started.countDown();
+                while (!stopped.get()) {
+                    attempts.incrementAndGet();
+                    sender.send(dto);
+                }
+            });
+            senders.add(thread);
+            thread.start();
+        }
+
+        assertThat(started.await(5, TimeUnit.SECONDS), equalTo(true));
+        Thread.sleep(20);
+        // записи продолжают поступать, пока идет остановка
+        sender.shutdown();
+        stopped.set(true);
+        for (Thread thread : senders) {
+            thread.join(5_000);
+        }
+
+        assertThat(sentHits() + sender.getDroppedHits(), equalTo((long) attempts.get()));
+    }
+
+    private void awaitSentHits(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sentHits() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(sentHits(), equalTo(expected));
+    }
+
+    private int sentHits() {
+        return batchSizes.stream().mapToInt(Integer::intValue).sum();
+    }
+}
@@ -0,0 +1,13 @@
+package ru.practicum.dto;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EndpointHitTotalDto {
+    private String app;
+    private String uri;
+    private long hits;
+    private long uniqueHits;
+}
@@ -0,0 +1,11 @@
+package ru.practicum.dto;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResourceHitsDto {
+    private long id;
+    private long hits;
+}
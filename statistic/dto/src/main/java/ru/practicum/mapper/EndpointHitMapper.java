@@ -4,16 +4,29 @@ import lombok.experimental.UtilityClass;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.model.EndpointHit;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 @UtilityClass
 public class EndpointHitMapper {
 
+    /*
+     * uri вида /events/42 дополнительно сохраняется как тип ресурса и его числовой id,
+     * чтобы статистику по ресурсам можно было запрашивать без сравнения строк
+     */
+    private final Pattern RESOURCE_URI = Pattern.compile("^/([a-z-]+)/(\\d{1,18})$");
+
     public EndpointHit makeEndpointHit(EndpointHitDto dto) {
+        Matcher resource = RESOURCE_URI.matcher(dto.getUri());
+        boolean isResource = resource.matches();
         return new EndpointHit(
                 0,
                 dto.getApp(),
                 dto.getUri(),
                 dto.getIp(),
-                dto.getTimestamp()
+                dto.getTimestamp(),
+                isResource ? resource.group(1) : null,
+                isResource ? Long.valueOf(resource.group(2)) : null
         );
     }
 
@@ -21,4 +21,8 @@ public class EndpointHit {
     private String ip;
     @Column(name = "date_time")
     private LocalDateTime dateTime;
+    @Column(name = "resource_type")
+    private String resourceType;
+    @Column(name = "resource_id")
+    private Long resourceId;
 }
\ No newline at end of file
@@ -4,18 +4,26 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.EndpointHitStatsDto;
+import ru.practicum.dto.EndpointHitTotalDto;
+import ru.practicum.dto.ResourceHitsDto;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.endpointhit.service.EndpointHitService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
 @Slf4j
+@Validated
 public class EndpointHitController {
 
     private final EndpointHitService service;
@@ -27,14 +35,77 @@ public class EndpointHitController {
         return service.addCallEndpointHit(endpointHitDto);
     }
 
+    @PostMapping("/hit/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void addStatNodes(@RequestBody @NotEmpty List<@Valid EndpointHitDto> endpointHitDtos) {
+        log.debug("Получен запрос POST /hit/batch, количество записей {}", endpointHitDtos.size());
+        service.addCallEndpointHits(endpointHitDtos);
+    }
+
+    /**
+     * Ответ всегда считается ровно за [start, end]. Для периодов старше срока хранения сырых обращений
+     * остаются только часовые, а затем дневные агрегаты, поэтому такие границы должны совпадать с целыми часами
+     * или сутками (конец - последней секундой часа или суток), иначе возвращается 400. Точный подсчет
+     * уникальных ip доступен только в пределах срока хранения сырых обращений, для более ранних периодов
+     * нужен approximate=true.
+     */
     @GetMapping("/stats")
     public List<EndpointHitStatsDto> getStats(@RequestParam
                                               @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
                                               @RequestParam
                                               @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
                                               @RequestParam(name = "uris", required = false) String[] uris,
-                                              @RequestParam(name = "unique", defaultValue = "false") Boolean unique) {
-        log.debug("Получен запрос GET /stats?start={start}&end={end}&uris={uris}&unique={unique}");
-        return service.getStats(start, end, uris, unique);
+                                              @RequestParam(name = "unique", defaultValue = "false") Boolean unique,
+                                              @RequestParam(name = "approximate", defaultValue = "false")
+                                              Boolean approximate) {
+        log.debug("Получен запрос GET /stats?start={}&end={}&uris={}&unique={}&approximate={}", start, end, uris,
+                unique, approximate);
+        return service.getStats(start, end, uris, unique, approximate);
+    }
+
+    @PostMapping("/stats/query")
+    public List<List<EndpointHitStatsDto>> queryStats(@RequestBody @NotEmpty @Size(max = 100)
+                                                      List<@Valid StatsQueryDto> queries) {
+        log.debug("Получен запрос POST /stats/query, количество подзапросов {}", queries.size());
+        return service.queryStats(queries);
+    }
+
+    /**
+     * Считается по сырым обращениям, поэтому доступна только в пределах их срока хранения (retention.raw-days):
+     * более ранний start возвращает 400. Счетчики за все время - GET /stats/totals/resources.
+     */
+    @GetMapping("/stats/resources")
+    public List<ResourceHitsDto> getResourceStats(@RequestParam
+                                                  @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                                  @RequestParam
+                                                  @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                                  @RequestParam(name = "type") @NotBlank String type,
+                                                  @RequestParam(name = "ids") @NotEmpty long[] ids,
+                                                  @RequestParam(name = "unique", defaultValue = "false")
+                                                  Boolean unique) {
+        log.debug("Получен запрос GET /stats/resources?start={}&end={}&type={}, количество id {}, unique={}",
+                start, end, type, ids.length, unique);
+        return service.getResourceStats(start, end, type, ids, unique);
+    }
+
+    @GetMapping("/stats/totals")
+    public List<EndpointHitTotalDto> getTotals(@RequestParam(name = "uris") @NotEmpty String[] uris) {
+        log.debug("Получен запрос GET /stats/totals, количество uri {}", uris.length);
+        return service.getTotals(uris);
+    }
+
+    /**
+     * Счетчики ресурсов приложения app за все время. Уникальные ip - оценка по HyperLogLog,
+     * которая обновляется при сбросе скетчей, то есть с задержкой до flush-interval-ms.
+     */
+    @GetMapping("/stats/totals/resources")
+    public List<ResourceHitsDto> getResourceTotals(@RequestParam(name = "app") @NotBlank String app,
+                                                   @RequestParam(name = "type") @NotBlank String type,
+                                                   @RequestParam(name = "ids") @NotEmpty long[] ids,
+                                                   @RequestParam(name = "unique", defaultValue = "false")
+                                                   Boolean unique) {
+        log.debug("Получен запрос GET /stats/totals/resources?app={}&type={}, количество id {}, unique={}",
+                app, type, ids.length, unique);
+        return service.getResourceTotals(app, type, ids, unique);
     }
 }
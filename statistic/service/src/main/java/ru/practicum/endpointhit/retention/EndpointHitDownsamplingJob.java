@@ -0,0 +1,51 @@
+package ru.practicum.endpointhit.retention;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.endpointhit.service.StatsResultCache;
+import ru.practicum.endpointhit.storage.EndpointHitPartitionManager;
+import ru.practicum.endpointhit.storage.EndpointHitStorage;
+import ru.practicum.endpointhit.storage.RollupGranularity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Прореживает статистику по HitRetentionPolicy. Часовые и дневные агрегаты пополняются при записи обращений,
+ * поэтому прореживание сводится к удалению мелких уровней за пределами их срока хранения.
+ * Сырые обращения в PostgreSQL удаляются вместе с партициями, отдельный DELETE затрагивает только
+ * партицию по умолчанию или непартиционированную таблицу H2.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EndpointHitDownsamplingJob {
+
+    private final HitRetentionPolicy retentionPolicy;
+    private final EndpointHitPartitionManager partitionManager;
+    private final EndpointHitStorage storage;
+    private final StatsResultCache resultCache;
+
+    @Scheduled(cron = "${explore-with-me-statistic.retention.cron:0 0 1 * * *}")
+    public void downsample() {
+        partitionManager.maintainPartitions();
+
+        LocalDateTime rawRetainedFrom = retentionPolicy.rawRetainedFrom();
+        if (rawRetainedFrom.isAfter(LocalDateTime.MIN)) {
+            int hits = storage.deleteHitsBefore(rawRetainedFrom);
+            int minutes = storage.deleteRollupsBefore(RollupGranularity.MINUTE, rawRetainedFrom);
+            log.info("Удалены обращения ({}) и минутные агрегаты ({}) раньше {}", hits, minutes, rawRetainedFrom);
+        }
+
+        LocalDateTime hourRetainedFrom = retentionPolicy.hourRetainedFrom();
+        if (hourRetainedFrom.isAfter(LocalDateTime.MIN)) {
+            int hours = storage.deleteRollupsBefore(RollupGranularity.HOUR, hourRetainedFrom);
+            int sketches = storage.deleteSketchesBefore(RollupGranularity.HOUR, hourRetainedFrom);
+            log.info("Удалены часовые агрегаты ({}) и скетчи ({}) раньше {}", hours, sketches, hourRetainedFrom);
+        }
+
+        // ответы для старых диапазонов теперь считаются по более крупным корзинам
+        resultCache.clear();
+    }
+}
@@ -0,0 +1,65 @@
+package ru.practicum.endpointhit.retention;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.endpointhit.storage.RollupGranularity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Сроки хранения уровней статистики: сырые обращения и минутные агрегаты хранятся raw-days дней,
+ * часовые агрегаты и скетчи - hour-months месяцев, дневные - все время. Значение 0 снимает ограничение.
+ * Границы выровнены на начало суток, поэтому граница каждого уровня совпадает с корзинами более крупных уровней.
+ */
+@Component
+public class HitRetentionPolicy {
+
+    private final int rawDays;
+    private final int hourMonths;
+
+    @Autowired
+    public HitRetentionPolicy(@Value("${explore-with-me-statistic.retention.raw-days:365}") int rawDays,
+                              @Value("${explore-with-me-statistic.retention.hour-months:24}") int hourMonths) {
+        this.rawDays = rawDays;
+        this.hourMonths = hourMonths;
+    }
+
+    public LocalDateTime rawRetainedFrom() {
+        return rawDays == 0 ? LocalDateTime.MIN : LocalDate.now().minusDays(rawDays).atStartOfDay();
+    }
+
+    public LocalDateTime hourRetainedFrom() {
+        return hourMonths == 0 ? LocalDateTime.MIN : LocalDate.now().minusMonths(hourMonths).atStartOfDay();
+    }
+
+    /**
+     * Самая мелкая корзина, агрегаты которой за момент dateTime еще хранятся, или null, пока хранятся сырые обращения.
+     */
+    public RollupGranularity retainedGranularity(LocalDateTime dateTime) {
+        if (dateTime.isBefore(hourRetainedFrom())) {
+            return RollupGranularity.DAY;
+        }
+        if (dateTime.isBefore(rawRetainedFrom())) {
+            return RollupGranularity.HOUR;
+        }
+        return null;
+    }
+
+    /**
+     * Сдвигает начало диапазона назад до границы самой мелкой корзины, данные которой еще хранятся.
+     */
+    public LocalDateTime floorToRetained(LocalDateTime start) {
+        RollupGranularity granularity = retainedGranularity(start);
+        return granularity == null ? start : granularity.floor(start);
+    }
+
+    /**
+     * Сдвигает конец диапазона вперед до границы самой мелкой корзины, данные которой еще хранятся.
+     */
+    public LocalDateTime ceilToRetained(LocalDateTime end) {
+        RollupGranularity granularity = retainedGranularity(end);
+        return granularity == null ? end : granularity.ceil(end);
+    }
+}
@@ -0,0 +1,170 @@
+package ru.practicum.endpointhit.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.EndpointHitStatsDto;
+import ru.practicum.endpointhit.storage.BucketKey;
+import ru.practicum.endpointhit.storage.EndpointHitStorage;
+import ru.practicum.endpointhit.storage.RollupGranularity;
+import ru.practicum.model.EndpointHit;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Счетчики обращений, еще не записанные в таблицы агрегатов и счетчиков за все время. Обращения суммируются
+ * в памяти, а раз в flush-interval-ms в каждую таблицу пишется по одному приращению на корзину: транзакция записи
+ * обращений не блокирует строки агрегатов, поэтому обращения к одному uri не выстраиваются в очередь.
+ * Чтения через read видят каждое обращение ровно один раз: либо в буфере, либо в таблице. Другие экземпляры
+ * сервиса видят обращения этого экземпляра с задержкой до flush-interval-ms, а при аварийной остановке
+ * теряются счетчики последнего интервала (сырые обращения при этом сохранены).
+ */
+@Component
+@Slf4j
+public class EndpointHitCounterBuffer {
+
+    private final EndpointHitStorage storage;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<RollupGranularity, ConcurrentMap<BucketKey, Long>> pending =
+            new EnumMap<>(RollupGranularity.class);
+    private final Map<RollupGranularity, Map<BucketKey, Long>> flushing = new EnumMap<>(RollupGranularity.class);
+    // запись переносит счетчики между буфером и таблицами, чтения держат блокировку на все время своих запросов
+    private final ReentrantReadWriteLock visibility = new ReentrantReadWriteLock();
+
+    @Autowired
+    public EndpointHitCounterBuffer(EndpointHitStorage storage, TransactionTemplate transactionTemplate) {
+        this.storage = storage;
+        this.transactionTemplate = transactionTemplate;
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            pending.put(granularity, new ConcurrentHashMap<>());
+            flushing.put(granularity, Collections.emptyMap());
+        }
+    }
+
+    public void add(List<EndpointHit> endpointHits) {
+        pending.forEach((granularity, counters) -> {
+            for (EndpointHit endpointHit : endpointHits) {
+                counters.merge(new BucketKey(endpointHit.getApp(), endpointHit.getUri(),
+                        granularity.floor(endpointHit.getDateTime())), 1L, Long::sum);
+            }
+        });
+    }
+
+    /**
+     * Выполняет reader, пока запись буфера не может зафиксироваться. Таблицы агрегатов и счетчиков за все время
+     * вместе с findHits и findTotalHits нужно читать внутри reader.
+     */
+    public <T> T read(Supplier<T> reader) {
+        visibility.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            visibility.readLock().unlock();
+        }
+    }
+
+    /**
+     * Незаписанные счетчики уровня granularity с началом корзины в полуинтервале [from, to).
+     */
+    public List<EndpointHitStatsDto> findHits(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                              String[] uris) {
+        Set<String> uriSet = uris == null ? null : new HashSet<>(Arrays.asList(uris));
+        Map<BucketKey, Long> hits = new HashMap<>();
+        forEachHit(granularity, (key, count) -> {
+            if (!key.getBucket().isBefore(from) && key.getBucket().isBefore(to)
+                    && (uriSet == null || uriSet.contains(key.getUri()))) {
+                hits.merge(key.withoutBucket(), count, Long::sum);
+            }
+        });
+
+        List<EndpointHitStatsDto> stats = new ArrayList<>();
+        hits.forEach((key, count) -> stats.add(new EndpointHitStatsDto(key.getApp(), key.getUri(), count)));
+        return stats;
+    }
+
+    /**
+     * Незаписанные приращения счетчиков за все время по парам app - uri.
+     */
+    public Map<BucketKey, Long> findTotalHits() {
+        Map<BucketKey, Long> hits = new HashMap<>();
+        forEachHit(RollupGranularity.DAY, (key, count) -> hits.merge(key.withoutBucket(), count, Long::sum));
+        return hits;
+    }
+
+    /*
+     * Счетчики переносятся в записываемую пачку и возвращаются из нее под блокировкой записи, а транзакция
+     * фиксируется, пока блокировка удерживается: чтение не увидит приращение одновременно в буфере и в таблице.
+     * Счетчики, которые не удалось записать, возвращаются в буфер до следующего сброса
+     */
+    @Scheduled(fixedDelayString = "${explore-with-me-statistic.counters.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        Map<RollupGranularity, Map<BucketKey, Long>> batch = new EnumMap<>(RollupGranularity.class);
+        visibility.writeLock().lock();
+        try {
+            pending.forEach((granularity, counters) -> {
+                Map<BucketKey, Long> granularityBatch = new HashMap<>();
+                for (BucketKey key : counters.keySet()) {
+                    Long count = counters.remove(key);
+                    if (count != null) {
+                        granularityBatch.put(key, count);
+                    }
+                }
+                batch.put(granularity, granularityBatch);
+                flushing.put(granularity, granularityBatch);
+            });
+        } finally {
+            visibility.writeLock().unlock();
+        }
+        if (batch.get(RollupGranularity.DAY).isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                batch.forEach(storage::addToRollups);
+                // каждое обращение попадает ровно в одну суточную корзину
+                storage.addToTotals(batch.get(RollupGranularity.DAY));
+                visibility.writeLock().lock();
+            });
+            log.debug("Записаны счетчики обращений: {}", batch.get(RollupGranularity.DAY).size());
+        } catch (RuntimeException e) {
+            if (!visibility.isWriteLockedByCurrentThread()) {
+                visibility.writeLock().lock();
+            }
+            batch.forEach((granularity, counters) ->
+                    counters.forEach((key, count) -> pending.get(granularity).merge(key, count, Long::sum)));
+            log.warn("Не удалось записать счетчики обращений: {}", e.getMessage());
+        } finally {
+            if (!visibility.isWriteLockedByCurrentThread()) {
+                visibility.writeLock().lock();
+            }
+            resetFlushing();
+            visibility.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void forEachHit(RollupGranularity granularity, BiConsumer<BucketKey, Long> consumer) {
+        pending.get(granularity).forEach(consumer);
+        flushing.get(granularity).forEach(consumer);
+    }
+
+    private void resetFlushing() {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            flushing.put(granularity, Collections.emptyMap());
+        }
+    }
+}
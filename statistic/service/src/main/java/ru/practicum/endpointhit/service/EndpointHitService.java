@@ -3,6 +3,9 @@ package ru.practicum.endpointhit.service;
 
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.EndpointHitStatsDto;
+import ru.practicum.dto.EndpointHitTotalDto;
+import ru.practicum.dto.ResourceHitsDto;
+import ru.practicum.dto.StatsQueryDto;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -11,5 +14,17 @@ public interface EndpointHitService {
 
     EndpointHitDto addCallEndpointHit(EndpointHitDto dto);
 
-    List<EndpointHitStatsDto> getStats(LocalDateTime start, LocalDateTime end, String[] uris, Boolean uniqueUris);
+    void addCallEndpointHits(List<EndpointHitDto> dtos);
+
+    List<EndpointHitStatsDto> getStats(LocalDateTime start, LocalDateTime end, String[] uris, Boolean uniqueUris,
+                                      Boolean approximate);
+
+    List<List<EndpointHitStatsDto>> queryStats(List<StatsQueryDto> queries);
+
+    List<ResourceHitsDto> getResourceStats(LocalDateTime start, LocalDateTime end, String type, long[] ids,
+                                           Boolean unique);
+
+    List<EndpointHitTotalDto> getTotals(String[] uris);
+
+    List<ResourceHitsDto> getResourceTotals(String app, String type, long[] ids, Boolean unique);
 }
@@ -3,16 +3,41 @@ package ru.practicum.endpointhit.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.EndpointHitStatsDto;
+import ru.practicum.dto.EndpointHitTotalDto;
+import ru.practicum.dto.ResourceHitsDto;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.exception.ValidateException;
 import ru.practicum.mapper.EndpointHitMapper;
+import ru.practicum.endpointhit.retention.HitRetentionPolicy;
+import ru.practicum.endpointhit.service.StatsResultCache.StatsQuery;
+import ru.practicum.endpointhit.sketch.EndpointHitSketch;
+import ru.practicum.endpointhit.sketch.EndpointHitSketchBuffer;
+import ru.practicum.endpointhit.sketch.HyperLogLog;
 import ru.practicum.endpointhit.storage.EndpointHitStorage;
+import ru.practicum.endpointhit.storage.RollupGranularity;
+import ru.practicum.model.EndpointHit;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -20,35 +45,336 @@ import java.util.List;
 @Transactional(readOnly = true)
 public class EndpointHitServiceImpl implements EndpointHitService {
 
+    private static final RollupGranularity[] HIT_TIERS = {
+            RollupGranularity.DAY, RollupGranularity.HOUR, RollupGranularity.MINUTE};
+    private static final RollupGranularity[] SKETCH_TIERS = {RollupGranularity.DAY, RollupGranularity.HOUR};
+
     private final EndpointHitStorage storage;
+    private final HitRetentionPolicy retentionPolicy;
+    private final StatsResultCache resultCache;
+    private final StatsQueryExecutor queryExecutor;
+    private final EndpointHitSketchBuffer sketchBuffer;
+    private final EndpointHitCounterBuffer counterBuffer;
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     @Override
     @Transactional
     public EndpointHitDto addCallEndpointHit(EndpointHitDto dto) {
-        return EndpointHitMapper.makeEndpointHitDto(storage.save(EndpointHitMapper.makeEndpointHit(dto)));
+        EndpointHit endpointHit = storage.save(EndpointHitMapper.makeEndpointHit(dto));
+        afterCommit(() -> {
+            counterBuffer.add(List.of(endpointHit));
+            sketchBuffer.add(List.of(endpointHit));
+        });
+        evictCachedStats(List.of(endpointHit));
+        return EndpointHitMapper.makeEndpointHitDto(endpointHit);
+    }
+
+    @Override
+    @Transactional
+    public void addCallEndpointHits(List<EndpointHitDto> dtos) {
+        List<EndpointHit> endpointHits = dtos.stream()
+                .map(EndpointHitMapper::makeEndpointHit)
+                .collect(Collectors.toList());
+        storage.saveAllInBatch(endpointHits);
+        afterCommit(() -> {
+            counterBuffer.add(endpointHits);
+            sketchBuffer.add(endpointHits);
+        });
+        evictCachedStats(endpointHits);
     }
 
     @Override
-    public List<EndpointHitStatsDto> getStats(LocalDateTime start, LocalDateTime end, String[] uris, Boolean unique) {
+    public List<EndpointHitStatsDto> getStats(LocalDateTime start, LocalDateTime end, String[] uris, Boolean unique,
+                                              Boolean approximate) {
 
         if (end.isBefore(start)) {
             log.debug("Unacceptable value of start/end datetime");
             throw new ValidateException("Start must be before End");
         }
 
-        if (uris == null) {
-            if (unique != null && unique) {
-                return storage.findAllEndpointHitForUnique(start, end);
-            } else {
-                return storage.findAllEndpointHitByDate(start, end);
+        boolean isUnique = unique != null && unique;
+        boolean isApproximate = approximate != null && approximate;
+        checkRetained(start, end, isUnique && !isApproximate);
+        LocalDateTime exclusiveEnd = end.plus(1, ChronoUnit.MICROS);
+        LocalDateTime closedBefore = resultCache.closedBefore();
+
+        if (exclusiveEnd.isBefore(closedBefore)) {
+            return resultCache.get(new StatsQuery(start, exclusiveEnd, uris, isUnique, isApproximate),
+                    () -> computeStats(start, exclusiveEnd, uris, isUnique, isApproximate));
+        }
+
+        // обычные счетчики аддитивны: закрытая часть диапазона берется из кэша, досчитывается только хвост
+        LocalDateTime closedEnd = RollupGranularity.HOUR.floor(closedBefore);
+        if (!isUnique && start.isBefore(closedEnd)) {
+            Map<List<String>, Long> hits = new HashMap<>();
+            addHits(hits, resultCache.get(new StatsQuery(start, closedEnd, uris, false, false),
+                    () -> getStatsFromRollups(start, closedEnd, uris)));
+            addHits(hits, getStatsFromRollups(closedEnd, exclusiveEnd, uris));
+            return toSortedStats(hits);
+        }
+
+        return computeStats(start, exclusiveEnd, uris, isUnique, isApproximate);
+    }
+
+    /*
+     * За сроком хранения сырых обращений остаются только часовые и дневные корзины. Диапазон, границы которого
+     * делят такую корзину, не расширяется молча, а отклоняется: иначе в ответ попали бы обращения вне периода,
+     * а точный подсчет уникальных ip незаметно сменился бы оценкой
+     */
+    private void checkRetained(LocalDateTime start, LocalDateTime end, boolean exactUnique) {
+        LocalDateTime rawRetainedFrom = retentionPolicy.rawRetainedFrom();
+        if (exactUnique && start.isBefore(rawRetainedFrom)) {
+            log.debug("Exact unique stats requested before raw retention {}", rawRetainedFrom);
+            throw new ValidateException("Exact unique stats are available from " + rawRetainedFrom.format(FORMATTER)
+                    + ", use approximate=true for earlier periods");
+        }
+
+        RollupGranularity startGranularity = retentionPolicy.retainedGranularity(start);
+        if (startGranularity != null && !startGranularity.floor(start).equals(start)) {
+            throw new ValidateException("Start before " + rawRetainedFrom.format(FORMATTER)
+                    + " must be aligned to whole " + startGranularity.getUnit().toString().toLowerCase());
+        }
+
+        // конец включает всю свою секунду: 12:59:59 закрывает час целиком
+        LocalDateTime endBound = end.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        RollupGranularity endGranularity = retentionPolicy.retainedGranularity(endBound);
+        if (endGranularity != null && !endGranularity.floor(endBound).equals(endBound)) {
+            throw new ValidateException("End before " + rawRetainedFrom.format(FORMATTER)
+                    + " must close whole " + endGranularity.getUnit().toString().toLowerCase());
+        }
+    }
+
+    /*
+     * Подзапросы выполняются на своих потоках, каждый со своим соединением и транзакцией исполнителя:
+     * getStats здесь вызывается мимо прокси. Сам вызов не держит транзакцию и соединение на время ожидания
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<List<EndpointHitStatsDto>> queryStats(List<StatsQueryDto> queries) {
+        List<Supplier<List<EndpointHitStatsDto>>> tasks = queries.stream()
+                .map(query -> (Supplier<List<EndpointHitStatsDto>>) () -> getStats(query.getStart(), query.getEnd(),
+                        query.getUris(), query.getUnique(), query.getApproximate()))
+                .collect(Collectors.toList());
+
+        return queryExecutor.invokeAll(tasks);
+    }
+
+    private List<EndpointHitStatsDto> computeStats(LocalDateTime start, LocalDateTime end, String[] uris,
+                                                   boolean unique, boolean approximate) {
+        if (unique) {
+            if (approximate) {
+                return getApproximateUniqueStats(start, end, uris);
             }
-        } else {
-            if (unique != null && unique) {
-                return storage.findEndpointHitForUriInAndUnique(start, end, uris);
+            LocalDateTime inclusiveEnd = end.minus(1, ChronoUnit.MICROS);
+            if (uris == null) {
+                return storage.findAllEndpointHitForUnique(start, inclusiveEnd);
             } else {
-                return storage.findEndpointHitForUriIn(start, end, uris);
+                return storage.findEndpointHitForUriInAndUnique(start, inclusiveEnd, uris);
+            }
+        }
+
+        return getStatsFromRollups(start, end, uris);
+    }
+
+    @Override
+    public List<ResourceHitsDto> getResourceStats(LocalDateTime start, LocalDateTime end, String type, long[] ids,
+                                                  Boolean unique) {
+        if (end.isBefore(start)) {
+            log.debug("Unacceptable value of start/end datetime");
+            throw new ValidateException("Start must be before End");
+        }
+        // агрегаты по ресурсам не ведутся, а сырые обращения старше срока хранения удалены
+        LocalDateTime rawRetainedFrom = retentionPolicy.rawRetainedFrom();
+        if (start.isBefore(rawRetainedFrom)) {
+            throw new ValidateException("Resource stats are kept only from " + rawRetainedFrom.format(FORMATTER)
+                    + ", use /stats/totals/resources for lifetime counts");
+        }
+
+        return storage.findResourceStats(type, ids, start, end, unique != null && unique);
+    }
+
+    @Override
+    public List<EndpointHitTotalDto> getTotals(String[] uris) {
+        return counterBuffer.read(() -> {
+            Map<List<String>, EndpointHitTotalDto> totals = new LinkedHashMap<>();
+            for (EndpointHitTotalDto total : storage.findTotals(uris)) {
+                totals.put(List.of(total.getApp(), total.getUri()), total);
             }
+            Set<String> uriSet = new HashSet<>(Arrays.asList(uris));
+            counterBuffer.findTotalHits().forEach((key, hits) -> {
+                if (uriSet.contains(key.getUri())) {
+                    EndpointHitTotalDto total = totals.computeIfAbsent(List.of(key.getApp(), key.getUri()),
+                            pair -> new EndpointHitTotalDto(key.getApp(), key.getUri(), 0, 0));
+                    total.setHits(total.getHits() + hits);
+                }
+            });
+            return new ArrayList<>(totals.values());
+        });
+    }
+
+    @Override
+    public List<ResourceHitsDto> getResourceTotals(String app, String type, long[] ids, Boolean unique) {
+        if (unique != null && unique) {
+            return storage.findResourceTotals(app, type, ids, true);
+        }
+
+        return counterBuffer.read(() -> {
+            Map<Long, ResourceHitsDto> totals = new LinkedHashMap<>();
+            for (ResourceHitsDto total : storage.findResourceTotals(app, type, ids, false)) {
+                totals.put(total.getId(), total);
+            }
+            Set<Long> idSet = Arrays.stream(ids).boxed().collect(Collectors.toSet());
+            counterBuffer.findTotalHits().forEach((key, hits) -> {
+                EndpointHit resource = EndpointHitMapper.makeEndpointHit(
+                        new EndpointHitDto(key.getApp(), key.getUri(), null, null));
+                if (app.equals(resource.getApp()) && type.equals(resource.getResourceType())
+                        && idSet.contains(resource.getResourceId())) {
+                    ResourceHitsDto total = totals.computeIfAbsent(resource.getResourceId(),
+                            id -> new ResourceHitsDto(id, 0));
+                    total.setHits(total.getHits() + hits);
+                }
+            });
+            return new ArrayList<>(totals.values());
+        });
+    }
+
+    /*
+     * Полные дни, часы и минуты диапазона [start, end) берутся из предагрегированных таблиц,
+     * сырые записи читаются только для неполных минут по краям. Края за сроком хранения мелких уровней
+     * уже выровнены checkRetained, до границ корзин сдвигается только остаток последней секунды
+     */
+    private List<EndpointHitStatsDto> getStatsFromRollups(LocalDateTime start, LocalDateTime end, String[] uris) {
+        return counterBuffer.read(() -> {
+            Map<List<String>, Long> hits = new HashMap<>();
+            addTieredHits(hits, retentionPolicy.floorToRetained(start), retentionPolicy.ceilToRetained(end), uris,
+                    0);
+            return toSortedStats(hits);
+        });
+    }
+
+    private List<EndpointHitStatsDto> toSortedStats(Map<List<String>, Long> hits) {
+        return hits.entrySet().stream()
+                .map(entry -> new EndpointHitStatsDto(entry.getKey().get(0), entry.getKey().get(1), entry.getValue()))
+                .sorted(Comparator.comparingLong(EndpointHitStatsDto::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /*
+     * Обращение с прошлой датой меняет ответы для уже закрытых диапазонов. Кэш чистится после фиксации транзакции,
+     * иначе параллельный запрос мог бы снова закэшировать ответ без этих обращений
+     */
+    private void evictCachedStats(List<EndpointHit> endpointHits) {
+        LocalDateTime closedBefore = resultCache.closedBefore();
+        Optional<LocalDateTime> earliest = endpointHits.stream()
+                .map(EndpointHit::getDateTime)
+                .filter(dateTime -> dateTime.isBefore(closedBefore))
+                .min(Comparator.naturalOrder());
+        earliest.ifPresent(from -> afterCommit(() -> resultCache.evictFrom(from)));
+    }
+
+    /*
+     * Счетчики, скетчи и кэш ответов живут в памяти, поэтому меняются только для зафиксированных обращений
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /*
+     * Уникальные ip полных дней и часов берутся из скетчей HyperLogLog, неполные часы по краям досчитываются
+     * по сырым записям. Погрешность оценки описана в HyperLogLog
+     */
+    private List<EndpointHitStatsDto> getApproximateUniqueStats(LocalDateTime start, LocalDateTime end,
+                                                                String[] uris) {
+        Map<List<String>, HyperLogLog> sketches = new HashMap<>();
+        addTieredSketches(sketches, retentionPolicy.floorToRetained(start), retentionPolicy.ceilToRetained(end),
+                uris, 0);
+
+        return sketches.entrySet().stream()
+                .map(entry -> new EndpointHitStatsDto(entry.getKey().get(0), entry.getKey().get(1),
+                        entry.getValue().estimate()))
+                .sorted(Comparator.comparingLong(EndpointHitStatsDto::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private void addTieredHits(Map<List<String>, Long> hits, LocalDateTime start, LocalDateTime end, String[] uris,
+                               int tier) {
+        if (!start.isBefore(end)) {
+            return;
+        }
+        if (tier == HIT_TIERS.length) {
+            addRawHits(hits, start, end, uris);
+            return;
+        }
+
+        RollupGranularity granularity = HIT_TIERS[tier];
+        LocalDateTime bucketStart = granularity.ceil(start);
+        LocalDateTime bucketEnd = granularity.floor(end);
+
+        if (bucketStart.isBefore(bucketEnd)) {
+            addHits(hits, storage.findRollupStats(granularity, bucketStart, bucketEnd, uris));
+            addHits(hits, counterBuffer.findHits(granularity, bucketStart, bucketEnd, uris));
+            addTieredHits(hits, start, bucketStart, uris, tier + 1);
+            addTieredHits(hits, bucketEnd, end, uris, tier + 1);
+        } else {
+            addTieredHits(hits, start, end, uris, tier + 1);
+        }
+    }
+
+    private void addTieredSketches(Map<List<String>, HyperLogLog> sketches, LocalDateTime start, LocalDateTime end,
+                                   String[] uris, int tier) {
+        if (!start.isBefore(end)) {
+            return;
+        }
+        if (tier == SKETCH_TIERS.length) {
+            addSketches(sketches, storage.findRawSketches(start, end, uris));
+            return;
+        }
+
+        RollupGranularity granularity = SKETCH_TIERS[tier];
+        LocalDateTime bucketStart = granularity.ceil(start);
+        LocalDateTime bucketEnd = granularity.floor(end);
+
+        if (bucketStart.isBefore(bucketEnd)) {
+            addSketches(sketches, sketchBuffer.findSketches(granularity, bucketStart, bucketEnd, uris));
+            addSketches(sketches, storage.findSketches(granularity, bucketStart, bucketEnd, uris));
+            addTieredSketches(sketches, start, bucketStart, uris, tier + 1);
+            addTieredSketches(sketches, bucketEnd, end, uris, tier + 1);
+        } else {
+            addTieredSketches(sketches, start, end, uris, tier + 1);
+        }
+    }
+
+    private void addSketches(Map<List<String>, HyperLogLog> sketches, List<EndpointHitSketch> endpointHitSketches) {
+        for (EndpointHitSketch endpointHitSketch : endpointHitSketches) {
+            sketches.computeIfAbsent(List.of(endpointHitSketch.getApp(), endpointHitSketch.getUri()),
+                    key -> new HyperLogLog()).merge(endpointHitSketch.getSketch());
+        }
+    }
+
+    private void addRawHits(Map<List<String>, Long> hits, LocalDateTime start, LocalDateTime end, String[] uris) {
+        if (!start.isBefore(end)) {
+            return;
+        }
+        LocalDateTime inclusiveEnd = end.minus(1, ChronoUnit.MICROS);
+        if (uris == null) {
+            addHits(hits, storage.findAllEndpointHitByDate(start, inclusiveEnd));
+        } else {
+            addHits(hits, storage.findEndpointHitForUriIn(start, inclusiveEnd, uris));
+        }
+    }
+
+    private void addHits(Map<List<String>, Long> hits, List<EndpointHitStatsDto> stats) {
+        for (EndpointHitStatsDto dto : stats) {
+            hits.merge(List.of(dto.getApp(), dto.getUri()), dto.getHits(), Long::sum);
         }
     }
 }
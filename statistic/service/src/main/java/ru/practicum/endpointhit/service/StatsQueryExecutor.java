@@ -0,0 +1,80 @@
+package ru.practicum.endpointhit.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Выполняет подзапросы POST /stats/query параллельно на пуле из threads потоков, каждый в своей
+ * транзакции только для чтения. Число одновременных подзапросов ограничено размером пула,
+ * чтобы не занять все соединения с базой.
+ */
+@Component
+public class StatsQueryExecutor {
+
+    private final ExecutorService executor;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public StatsQueryExecutor(@Value("${explore-with-me-statistic.query.threads:4}") int threads,
+                              PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "stats-query-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Возвращает результаты в порядке задач. Исключение первой упавшей задачи пробрасывается как есть,
+     * остальные задачи при этом отменяются: еще не начатые не запускаются, выполняющиеся прерываются.
+     */
+    public <T> List<T> invokeAll(List<Supplier<T>> tasks) {
+        if (tasks.size() == 1) {
+            T result = readOnlyTransaction.execute(status -> tasks.get(0).get());
+            return List.of(result);
+        }
+
+        List<Future<T>> futures = new ArrayList<>();
+        for (Supplier<T> task : tasks) {
+            futures.add(executor.submit(() -> readOnlyTransaction.execute(status -> task.get())));
+        }
+        try {
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Stats query interrupted", e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ru.practicum.endpointhit.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.EndpointHitStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответов /stats для закрытых диапазонов, то есть закончившихся раньше чем closed-after-ms назад:
+ * обращения приходят с небольшой задержкой, поэтому более свежие диапазоны еще могут измениться.
+ * При превышении max-size вытесняются давно не читавшиеся ответы.
+ * Ответы, которые могли задеть обращения с прошлой датой, удаляются; после прореживания кэш очищается целиком.
+ */
+@Component
+public class StatsResultCache {
+
+    private static final String CACHE_NAME = "stats";
+
+    private final long closedAfterMs;
+    private final Map<StatsQuery, List<EndpointHitStatsDto>> entries;
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public StatsResultCache(@Value("${explore-with-me-statistic.stats-cache.max-size:1000}") int maxSize,
+                            @Value("${explore-with-me-statistic.stats-cache.closed-after-ms:300000}")
+                            long closedAfterMs,
+                            MeterRegistry meterRegistry) {
+        this.closedAfterMs = closedAfterMs;
+        this.hits = cacheGets(meterRegistry, "hit");
+        this.misses = cacheGets(meterRegistry, "miss");
+        Counter evictions = Counter.builder("cache.evictions")
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatsQuery, List<EndpointHitStatsDto>> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        });
+        Gauge.builder("cache.size", entries, Map::size)
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Момент, раньше которого диапазоны считаются закрытыми.
+     */
+    public LocalDateTime closedBefore() {
+        return LocalDateTime.now().minusNanos(closedAfterMs * 1_000_000);
+    }
+
+    public List<EndpointHitStatsDto> get(StatsQuery query, Supplier<List<EndpointHitStatsDto>> loader) {
+        List<EndpointHitStatsDto> cached = entries.get(query);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        long loadGeneration = generation.get();
+        List<EndpointHitStatsDto> loaded = List.copyOf(loader.get());
+        synchronized (entries) {
+            // ответ, посчитанный одновременно с удалением записей, мог не учесть новые обращения
+            if (generation.get() == loadGeneration) {
+                entries.put(query, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Удаляет ответы, диапазон которых заканчивается позже from, то есть мог включать обращения начиная с from.
+     */
+    public void evictFrom(LocalDateTime from) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.keySet().removeIf(query -> from.isBefore(query.getEnd()));
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    private static Counter cacheGets(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Параметры запроса статистики по полуинтервалу [start, end). Порядок uri на ответ не влияет.
+     */
+    @Getter
+    @EqualsAndHashCode
+    public static class StatsQuery {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final Set<String> uris;
+        private final boolean unique;
+        private final boolean approximate;
+
+        public StatsQuery(LocalDateTime start, LocalDateTime end, String[] uris, boolean unique,
+                          boolean approximate) {
+            this.start = start;
+            this.end = end;
+            this.uris = uris == null ? null : Set.copyOf(Arrays.asList(uris));
+            this.unique = unique;
+            this.approximate = approximate;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ru.practicum.endpointhit.sketch;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class EndpointHitSketch {
+    private String app;
+    private String uri;
+    private HyperLogLog sketch;
+}
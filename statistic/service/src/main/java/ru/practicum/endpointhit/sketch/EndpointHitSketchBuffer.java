@@ -0,0 +1,137 @@
+package ru.practicum.endpointhit.sketch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.endpointhit.storage.BucketKey;
+import ru.practicum.endpointhit.storage.EndpointHitStorage;
+import ru.practicum.endpointhit.storage.RollupGranularity;
+import ru.practicum.model.EndpointHit;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Скетчи уникальных ip, еще не записанные в базу. Обращения объединяются с регистрами в памяти,
+ * а раз в flush-interval-ms в таблицы скетчей пишется по одному объединенному скетчу на корзину:
+ * строка скетча блокируется один раз за интервал, а не на каждое обращение.
+ * Незаписанные скетчи учитываются при чтении, поэтому ответы этого экземпляра сервиса не отстают от записи.
+ * При аварийной остановке теряются только регистры последнего интервала: уникальные ip станут оценкой снизу.
+ */
+@Component
+@Slf4j
+public class EndpointHitSketchBuffer {
+
+    private final EndpointHitStorage storage;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<RollupGranularity, ConcurrentMap<BucketKey, HyperLogLog>> pending =
+            new EnumMap<>(RollupGranularity.class);
+    private final Map<RollupGranularity, Map<BucketKey, HyperLogLog>> flushing = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EndpointHitSketchBuffer(EndpointHitStorage storage, TransactionTemplate transactionTemplate) {
+        this.storage = storage;
+        this.transactionTemplate = transactionTemplate;
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            if (granularity.hasSketches()) {
+                pending.put(granularity, new ConcurrentHashMap<>());
+            }
+        }
+    }
+
+    public void add(List<EndpointHit> endpointHits) {
+        pending.forEach((granularity, sketches) -> {
+            for (EndpointHit endpointHit : endpointHits) {
+                BucketKey key = new BucketKey(endpointHit.getApp(), endpointHit.getUri(),
+                        granularity.floor(endpointHit.getDateTime()));
+                sketches.compute(key, (bucketKey, sketch) -> {
+                    HyperLogLog merged = sketch == null ? new HyperLogLog() : sketch;
+                    merged.add(endpointHit.getIp());
+                    return merged;
+                });
+            }
+        });
+    }
+
+    /**
+     * Незаписанные скетчи уровня granularity с началом корзины в полуинтервале [from, to).
+     * Читать их нужно раньше таблицы скетчей: корзина переходит в таблицу только после фиксации записи.
+     */
+    public List<EndpointHitSketch> findSketches(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                                String[] uris) {
+        Set<String> uriSet = uris == null ? null : new HashSet<>(Arrays.asList(uris));
+        List<EndpointHitSketch> sketches = new ArrayList<>();
+        ConcurrentMap<BucketKey, HyperLogLog> granularitySketches = pending.get(granularity);
+        for (BucketKey key : granularitySketches.keySet()) {
+            if (isRequested(key, from, to, uriSet)) {
+                // регистры копируются под блокировкой ключа, пока в скетч могут добавляться обращения
+                granularitySketches.computeIfPresent(key, (bucketKey, sketch) -> {
+                    HyperLogLog copy = new HyperLogLog();
+                    copy.merge(sketch);
+                    sketches.add(new EndpointHitSketch(key.getApp(), key.getUri(), copy));
+                    return sketch;
+                });
+            }
+        }
+        flushing.getOrDefault(granularity, Collections.emptyMap()).forEach((key, sketch) -> {
+            if (isRequested(key, from, to, uriSet)) {
+                sketches.add(new EndpointHitSketch(key.getApp(), key.getUri(), sketch));
+            }
+        });
+        return sketches;
+    }
+
+    /*
+     * Скетч переносится из буфера в записываемую пачку атомарно, поэтому при чтении он всегда виден
+     * в одном из них. Скетчи, которые не удалось записать, возвращаются в буфер до следующего сброса
+     */
+    @Scheduled(fixedDelayString = "${explore-with-me-statistic.sketches.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        pending.forEach((granularity, sketches) -> {
+            Map<BucketKey, HyperLogLog> batch = new ConcurrentSkipListMap<>();
+            flushing.put(granularity, batch);
+            try {
+                for (BucketKey key : sketches.keySet()) {
+                    sketches.computeIfPresent(key, (bucketKey, sketch) -> {
+                        batch.put(bucketKey, sketch);
+                        return null;
+                    });
+                }
+                if (!batch.isEmpty()) {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        storage.mergeSketches(granularity, batch);
+                        if (granularity == RollupGranularity.DAY) {
+                            // суточные скетчи хранятся все время, их объединение по uri дает скетч за все время
+                            storage.mergeTotalSketches(batch);
+                        }
+                    });
+                    log.debug("Записаны скетчи уровня {}: {}", granularity, batch.size());
+                }
+            } catch (RuntimeException e) {
+                batch.forEach((key, sketch) -> sketches.merge(key, sketch, (current, failed) -> {
+                    current.merge(failed);
+                    return current;
+                }));
+                log.warn("Не удалось записать скетчи уровня {}: {}", granularity, e.getMessage());
+            } finally {
+                flushing.remove(granularity);
+            }
+        });
+    }
+
+    private boolean isRequested(BucketKey key, LocalDateTime from, LocalDateTime to, Set<String> uris) {
+        return !key.getBucket().isBefore(from) && key.getBucket().isBefore(to)
+                && (uris == null || uris.contains(key.getUri()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
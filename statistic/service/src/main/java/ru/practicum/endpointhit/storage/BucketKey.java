@@ -0,0 +1,35 @@
+package ru.practicum.endpointhit.storage;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/*
+ * Ключ строки агрегатов: корзина bucket пары app - uri, для счетчиков за все время bucket не задается.
+ * Ключи сортируются, чтобы параллельные транзакции блокировали строки агрегатов в одном порядке
+ */
+@Getter
+@EqualsAndHashCode
+@RequiredArgsConstructor
+public class BucketKey implements Comparable<BucketKey> {
+    private static final Comparator<BucketKey> ORDER = Comparator
+            .comparing(BucketKey::getBucket, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(BucketKey::getApp)
+            .thenComparing(BucketKey::getUri);
+
+    private final String app;
+    private final String uri;
+    private final LocalDateTime bucket;
+
+    public BucketKey withoutBucket() {
+        return new BucketKey(app, uri, null);
+    }
+
+    @Override
+    public int compareTo(BucketKey other) {
+        return ORDER.compare(this, other);
+    }
+}
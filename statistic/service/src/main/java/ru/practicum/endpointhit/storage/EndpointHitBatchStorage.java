@@ -0,0 +1,13 @@
+package ru.practicum.endpointhit.storage;
+
+import ru.practicum.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EndpointHitBatchStorage {
+
+    void saveAllInBatch(List<EndpointHit> endpointHits);
+
+    int deleteHitsBefore(LocalDateTime before);
+}
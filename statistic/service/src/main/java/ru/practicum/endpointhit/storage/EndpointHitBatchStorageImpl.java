@@ -0,0 +1,37 @@
+package ru.practicum.endpointhit.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.model.EndpointHit;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class EndpointHitBatchStorageImpl implements EndpointHitBatchStorage {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String INSERT_ENDPOINT_HIT =
+            "INSERT INTO endpointhit (app, uri, ip, date_time, resource_type, resource_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void saveAllInBatch(List<EndpointHit> endpointHits) {
+        jdbcTemplate.batchUpdate(INSERT_ENDPOINT_HIT, endpointHits, BATCH_SIZE, (ps, endpointHit) -> {
+            ps.setString(1, endpointHit.getApp());
+            ps.setString(2, endpointHit.getUri());
+            ps.setString(3, endpointHit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(endpointHit.getDateTime()));
+            ps.setString(5, endpointHit.getResourceType());
+            ps.setObject(6, endpointHit.getResourceId(), Types.BIGINT);
+        });
+    }
+
+    @Override
+    public int deleteHitsBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM endpointhit WHERE date_time < ?", Timestamp.valueOf(before));
+    }
+}
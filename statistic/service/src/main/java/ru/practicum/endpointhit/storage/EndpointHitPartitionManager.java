@@ -0,0 +1,144 @@
+package ru.practicum.endpointhit.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.endpointhit.retention.HitRetentionPolicy;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Ведет дневные партиции таблицы endpointhit в PostgreSQL: заранее создает партиции на days-ahead дней вперед
+ * и удаляет целиком партиции за пределами срока хранения сырых обращений. Записи вне созданных партиций
+ * попадают в endpointhit_default. Для прошедших дней срока хранения, за которые там есть обращения
+ * с прошлой датой, партиция создается вместе с переносом этих обращений из endpointhit_default.
+ * Для H2 таблица не партиционирована, и обслуживание не выполняется.
+ * Кроме запуска при старте приложения вызывается из EndpointHitDownsamplingJob.
+ */
+@Component
+@Slf4j
+public class EndpointHitPartitionManager {
+
+    private static final String PARTITION_PREFIX = "endpointhit_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String CREATE_PARTITION =
+            "CREATE TABLE IF NOT EXISTS %s PARTITION OF endpointhit FOR VALUES FROM ('%s') TO ('%s')";
+    private static final String SELECT_PARTITIONS =
+            "SELECT c.relname FROM pg_inherits i " +
+                    "JOIN pg_class c ON c.oid = i.inhrelid " +
+                    "JOIN pg_class p ON p.oid = i.inhparent " +
+                    "WHERE p.relname = 'endpointhit'";
+    private static final String DROP_PARTITION = "DROP TABLE IF EXISTS %s";
+    private static final String SELECT_DEFAULT_DAYS =
+            "SELECT DISTINCT CAST(date_time AS DATE) FROM endpointhit_default WHERE date_time >= ?";
+    private static final String CREATE_MOVED_HITS =
+            "CREATE TEMPORARY TABLE endpointhit_moved (LIKE endpointhit) ON COMMIT DROP";
+    private static final String MOVE_FROM_DEFAULT =
+            "WITH moved AS (DELETE FROM endpointhit_default WHERE date_time >= ? AND date_time < ? RETURNING *) " +
+                    "INSERT INTO endpointhit_moved SELECT * FROM moved";
+    private static final String RETURN_MOVED_HITS = "INSERT INTO endpointhit SELECT * FROM endpointhit_moved";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HitRetentionPolicy retentionPolicy;
+    private final int daysAhead;
+    private volatile SqlDialect dialect;
+
+    @Autowired
+    public EndpointHitPartitionManager(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                       HitRetentionPolicy retentionPolicy,
+                                       @Value("${explore-with-me-statistic.partitions.days-ahead:7}") int daysAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.retentionPolicy = retentionPolicy;
+        this.daysAhead = daysAhead;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainPartitions() {
+        if (dialect == null) {
+            dialect = SqlDialect.of(jdbcTemplate);
+        }
+        if (dialect != SqlDialect.POSTGRESQL) {
+            return;
+        }
+
+        LocalDateTime rawRetainedFrom = retentionPolicy.rawRetainedFrom();
+        createPartitions(LocalDate.now(), rawRetainedFrom);
+        if (rawRetainedFrom.isAfter(LocalDateTime.MIN)) {
+            dropExpiredPartitions(rawRetainedFrom.toLocalDate());
+        }
+    }
+
+    private void createPartitions(LocalDate today, LocalDateTime rawRetainedFrom) {
+        Set<LocalDate> days = new TreeSet<>(jdbcTemplate.queryForList(SELECT_DEFAULT_DAYS, LocalDate.class,
+                rawRetainedFrom.isAfter(LocalDateTime.MIN) ? rawRetainedFrom : LocalDate.EPOCH.atStartOfDay()));
+        for (int i = 0; i <= daysAhead; i++) {
+            days.add(today.plusDays(i));
+        }
+        Set<String> partitions = new HashSet<>(jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class));
+
+        for (LocalDate day : days) {
+            if (partitions.contains(partitionName(day))) {
+                continue;
+            }
+            try {
+                createPartition(day);
+            } catch (DataAccessException e) {
+                log.warn("Не удалось создать партицию endpointhit за {}: {}", day, e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Партиция не создается, пока в endpointhit_default есть записи за ее день, поэтому они переносятся
+     * во временную таблицу и возвращаются в endpointhit уже после создания партиции, все в одной транзакции
+     */
+    private void createPartition(LocalDate day) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute(CREATE_MOVED_HITS);
+            int moved = jdbcTemplate.update(MOVE_FROM_DEFAULT, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+            jdbcTemplate.execute(String.format(CREATE_PARTITION, partitionName(day), day, day.plusDays(1)));
+            if (moved > 0) {
+                jdbcTemplate.update(RETURN_MOVED_HITS);
+                log.info("В партицию {} перенесены обращения из endpointhit_default: {}", partitionName(day), moved);
+            }
+        });
+    }
+
+    private void dropExpiredPartitions(LocalDate retainFrom) {
+        List<String> partitions = jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class);
+        for (String partition : partitions) {
+            if (!partition.startsWith(PARTITION_PREFIX)) {
+                continue;
+            }
+            LocalDate day;
+            try {
+                day = LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+            if (day.isBefore(retainFrom)) {
+                jdbcTemplate.execute(String.format(DROP_PARTITION, partition));
+                log.info("Удалена партиция {} с записями раньше {}", partition, retainFrom);
+            }
+        }
+    }
+
+    private String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + day.format(PARTITION_SUFFIX);
+    }
+}
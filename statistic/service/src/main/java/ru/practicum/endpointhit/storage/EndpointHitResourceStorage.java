@@ -0,0 +1,16 @@
+package ru.practicum.endpointhit.storage;
+
+import ru.practicum.dto.ResourceHitsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EndpointHitResourceStorage {
+
+    /**
+     * Считает обращения к ресурсам одного типа по их числовым id за период [start, end].
+     * Ресурсы без обращений в ответ не попадают.
+     */
+    List<ResourceHitsDto> findResourceStats(String resourceType, long[] resourceIds, LocalDateTime start,
+                                            LocalDateTime end, boolean unique);
+}
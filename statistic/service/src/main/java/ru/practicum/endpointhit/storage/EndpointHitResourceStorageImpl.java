@@ -0,0 +1,39 @@
+package ru.practicum.endpointhit.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.dto.ResourceHitsDto;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class EndpointHitResourceStorageImpl implements EndpointHitResourceStorage {
+
+    /*
+     * id передаются одним параметром-массивом: текст запроса и план не зависят от числа id
+     */
+    private static final String SELECT_RESOURCE_HITS =
+            "SELECT resource_id, %s AS hits FROM endpointhit " +
+                    "WHERE resource_type = ? AND resource_id = ANY(?) AND date_time BETWEEN ? AND ? " +
+                    "GROUP BY resource_id";
+    private static final String SELECT_HITS = String.format(SELECT_RESOURCE_HITS, "COUNT(ip)");
+    private static final String SELECT_UNIQUE_HITS = String.format(SELECT_RESOURCE_HITS, "COUNT(DISTINCT ip)");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<ResourceHitsDto> findResourceStats(String resourceType, long[] resourceIds, LocalDateTime start,
+                                                   LocalDateTime end, boolean unique) {
+        Long[] ids = Arrays.stream(resourceIds).boxed().toArray(Long[]::new);
+
+        return jdbcTemplate.query(unique ? SELECT_UNIQUE_HITS : SELECT_HITS, ps -> {
+            ps.setString(1, resourceType);
+            ps.setArray(2, ps.getConnection().createArrayOf("BIGINT", ids));
+            ps.setTimestamp(3, Timestamp.valueOf(start));
+            ps.setTimestamp(4, Timestamp.valueOf(end));
+        }, (rs, rowNum) -> new ResourceHitsDto(rs.getLong("resource_id"), rs.getLong("hits")));
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.endpointhit.storage;
+
+import ru.practicum.dto.EndpointHitStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface EndpointHitRollupStorage {
+
+    /**
+     * Прибавляет counters к счетчикам корзин уровня granularity.
+     */
+    void addToRollups(RollupGranularity granularity, Map<BucketKey, Long> counters);
+
+    /**
+     * Суммирует счетчики корзин с началом в полуинтервале [from, to).
+     */
+    List<EndpointHitStatsDto> findRollupStats(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                              String[] uris);
+
+    /**
+     * Удаляет корзины с началом раньше before.
+     */
+    int deleteRollupsBefore(RollupGranularity granularity, LocalDateTime before);
+}
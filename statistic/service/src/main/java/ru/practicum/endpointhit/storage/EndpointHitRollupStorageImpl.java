@@ -0,0 +1,78 @@
+package ru.practicum.endpointhit.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.dto.EndpointHitStatsDto;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@RequiredArgsConstructor
+public class EndpointHitRollupStorageImpl implements EndpointHitRollupStorage {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String POSTGRESQL_UPSERT =
+            "INSERT INTO %1$s (app, uri, bucket, hits) VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT (bucket, app, uri) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits";
+    private static final String H2_UPSERT =
+            "MERGE INTO %1$s t " +
+                    "USING (SELECT CAST(? AS VARCHAR(50)) AS app, CAST(? AS VARCHAR(50)) AS uri, " +
+                    "CAST(? AS TIMESTAMP) AS bucket, CAST(? AS BIGINT) AS hits) s " +
+                    "ON t.bucket = s.bucket AND t.app = s.app AND t.uri = s.uri " +
+                    "WHEN MATCHED THEN UPDATE SET hits = t.hits + s.hits " +
+                    "WHEN NOT MATCHED THEN INSERT (app, uri, bucket, hits) VALUES (s.app, s.uri, s.bucket, s.hits)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private volatile SqlDialect dialect;
+
+    @Override
+    public void addToRollups(RollupGranularity granularity, Map<BucketKey, Long> counters) {
+        List<Map.Entry<BucketKey, Long>> sorted = new ArrayList<>(new TreeMap<>(counters).entrySet());
+        jdbcTemplate.batchUpdate(upsertSql(granularity), sorted, BATCH_SIZE, (ps, counter) -> {
+            ps.setString(1, counter.getKey().getApp());
+            ps.setString(2, counter.getKey().getUri());
+            ps.setTimestamp(3, Timestamp.valueOf(counter.getKey().getBucket()));
+            ps.setLong(4, counter.getValue());
+        });
+    }
+
+    @Override
+    public List<EndpointHitStatsDto> findRollupStats(RollupGranularity granularity, LocalDateTime from,
+                                                     LocalDateTime to, String[] uris) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        StringBuilder sql = new StringBuilder()
+                .append("SELECT app, uri, SUM(hits) AS hits FROM ")
+                .append(granularity.getTableName())
+                .append(" WHERE bucket >= :from AND bucket < :to");
+        if (uris != null) {
+            parameters.addValue("uris", Arrays.asList(uris));
+            sql.append(" AND uri IN (:uris)");
+        }
+        sql.append(" GROUP BY app, uri");
+
+        return namedJdbcTemplate.query(sql.toString(), parameters, (rs, rowNum) -> new EndpointHitStatsDto(
+                rs.getString("app"),
+                rs.getString("uri"),
+                rs.getLong("hits")));
+    }
+
+    @Override
+    public int deleteRollupsBefore(RollupGranularity granularity, LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM " + granularity.getTableName() + " WHERE bucket < ?",
+                Timestamp.valueOf(before));
+    }
+
+    private String upsertSql(RollupGranularity granularity) {
+        if (dialect == null) {
+            dialect = SqlDialect.of(jdbcTemplate);
+        }
+        return String.format(dialect == SqlDialect.POSTGRESQL ? POSTGRESQL_UPSERT : H2_UPSERT,
+                granularity.getTableName());
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.endpointhit.storage;
+
+import ru.practicum.endpointhit.sketch.EndpointHitSketch;
+import ru.practicum.endpointhit.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface EndpointHitSketchStorage {
+
+    /**
+     * Объединяет скетчи корзин уровня granularity с сохраненными. Новый скетч вставляется одним запросом,
+     * существующий блокируется, объединяется и перезаписывается; строки блокируются в порядке ключей.
+     */
+    void mergeSketches(RollupGranularity granularity, Map<BucketKey, HyperLogLog> sketches);
+
+    /**
+     * Объединяет скетчи уникальных ip уровня granularity с началом корзины в полуинтервале [from, to).
+     */
+    List<EndpointHitSketch> findSketches(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                         String[] uris);
+
+    /**
+     * Строит скетчи уникальных ip по сырым записям из полуинтервала [from, to).
+     */
+    List<EndpointHitSketch> findRawSketches(LocalDateTime from, LocalDateTime to, String[] uris);
+
+    /**
+     * Удаляет скетчи уровня granularity с началом корзины раньше before.
+     */
+    int deleteSketchesBefore(RollupGranularity granularity, LocalDateTime before);
+}
@@ -0,0 +1,116 @@
+package ru.practicum.endpointhit.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.endpointhit.sketch.EndpointHitSketch;
+import ru.practicum.endpointhit.sketch.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class EndpointHitSketchStorageImpl implements EndpointHitSketchStorage {
+
+    private static final String POSTGRESQL_INSERT_IF_ABSENT =
+            "INSERT INTO %1$s (app, uri, bucket, sketch) VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT (bucket, app, uri) DO NOTHING";
+    private static final String H2_INSERT_IF_ABSENT =
+            "MERGE INTO %1$s t " +
+                    "USING (SELECT CAST(? AS VARCHAR(50)) AS app, CAST(? AS VARCHAR(50)) AS uri, " +
+                    "CAST(? AS TIMESTAMP) AS bucket, CAST(? AS BYTEA) AS sketch) s " +
+                    "ON t.bucket = s.bucket AND t.app = s.app AND t.uri = s.uri " +
+                    "WHEN NOT MATCHED THEN INSERT (app, uri, bucket, sketch) VALUES (s.app, s.uri, s.bucket, s.sketch)";
+    private static final String SELECT_FOR_UPDATE =
+            "SELECT sketch FROM %1$s WHERE bucket = ? AND app = ? AND uri = ? FOR UPDATE";
+    private static final String UPDATE_SKETCH =
+            "UPDATE %1$s SET sketch = ? WHERE bucket = ? AND app = ? AND uri = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private volatile SqlDialect dialect;
+
+    @Override
+    public void mergeSketches(RollupGranularity granularity, Map<BucketKey, HyperLogLog> sketches) {
+        String table = granularity.getSketchTableName();
+        for (Map.Entry<BucketKey, HyperLogLog> entry : new TreeMap<>(sketches).entrySet()) {
+            BucketKey key = entry.getKey();
+            Timestamp bucket = Timestamp.valueOf(key.getBucket());
+            int inserted = jdbcTemplate.update(insertIfAbsentSql(table), key.getApp(), key.getUri(), bucket,
+                    entry.getValue().toBytes());
+            if (inserted == 0) {
+                HyperLogLog stored = HyperLogLog.fromBytes(jdbcTemplate.queryForObject(
+                        String.format(SELECT_FOR_UPDATE, table), byte[].class, bucket, key.getApp(), key.getUri()));
+                stored.merge(entry.getValue());
+                jdbcTemplate.update(String.format(UPDATE_SKETCH, table), stored.toBytes(), bucket, key.getApp(),
+                        key.getUri());
+            }
+        }
+    }
+
+    @Override
+    public List<EndpointHitSketch> findSketches(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                                                String[] uris) {
+        Map<List<String>, HyperLogLog> sketches = new HashMap<>();
+        MapSqlParameterSource parameters = rangeParameters(from, to, uris);
+        String sql = "SELECT app, uri, sketch FROM " + granularity.getSketchTableName() +
+                " WHERE bucket >= :from AND bucket < :to" + uriCondition(uris);
+
+        namedJdbcTemplate.query(sql, parameters, rs -> {
+            sketches.computeIfAbsent(List.of(rs.getString("app"), rs.getString("uri")), key -> new HyperLogLog())
+                    .merge(HyperLogLog.fromBytes(rs.getBytes("sketch")));
+        });
+        return toEndpointHitSketches(sketches);
+    }
+
+    @Override
+    public List<EndpointHitSketch> findRawSketches(LocalDateTime from, LocalDateTime to, String[] uris) {
+        Map<List<String>, HyperLogLog> sketches = new HashMap<>();
+        MapSqlParameterSource parameters = rangeParameters(from, to, uris);
+        String sql = "SELECT DISTINCT app, uri, ip FROM endpointhit " +
+                "WHERE date_time >= :from AND date_time < :to" + uriCondition(uris);
+
+        namedJdbcTemplate.query(sql, parameters, rs -> {
+            sketches.computeIfAbsent(List.of(rs.getString("app"), rs.getString("uri")), key -> new HyperLogLog())
+                    .add(rs.getString("ip"));
+        });
+        return toEndpointHitSketches(sketches);
+    }
+
+    @Override
+    public int deleteSketchesBefore(RollupGranularity granularity, LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM " + granularity.getSketchTableName() + " WHERE bucket < ?",
+                Timestamp.valueOf(before));
+    }
+
+    private MapSqlParameterSource rangeParameters(LocalDateTime from, LocalDateTime to, String[] uris) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        if (uris != null) {
+            parameters.addValue("uris", Arrays.asList(uris));
+        }
+        return parameters;
+    }
+
+    private String uriCondition(String[] uris) {
+        return uris == null ? "" : " AND uri IN (:uris)";
+    }
+
+    private List<EndpointHitSketch> toEndpointHitSketches(Map<List<String>, HyperLogLog> sketches) {
+        return sketches.entrySet().stream()
+                .map(entry -> new EndpointHitSketch(entry.getKey().get(0), entry.getKey().get(1), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    private String insertIfAbsentSql(String table) {
+        if (dialect == null) {
+            dialect = SqlDialect.of(jdbcTemplate);
+        }
+        return String.format(dialect == SqlDialect.POSTGRESQL ? POSTGRESQL_INSERT_IF_ABSENT : H2_INSERT_IF_ABSENT,
+                table);
+    }
+}
@@ -8,7 +8,9 @@ import ru.practicum.model.EndpointHit;
 import java.time.LocalDateTime;
 import java.util.List;
 
-public interface EndpointHitStorage extends JpaRepository<EndpointHit, Long> {
+public interface EndpointHitStorage extends JpaRepository<EndpointHit, Long>, EndpointHitBatchStorage,
+        EndpointHitRollupStorage, EndpointHitSketchStorage, EndpointHitResourceStorage,
+        EndpointHitTotalStorage {
 
     @Query("select new ru.practicum.dto.EndpointHitStatsDto(eh.app, eh.uri, count(eh.ip)) " +
             "from EndpointHit eh " +
@@ -0,0 +1,30 @@
+package ru.practicum.endpointhit.storage;
+
+import ru.practicum.dto.EndpointHitTotalDto;
+import ru.practicum.dto.ResourceHitsDto;
+import ru.practicum.endpointhit.sketch.HyperLogLog;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Счетчики обращений и уникальных ip за все время по каждой паре app - uri, по одной строке на пару.
+ * Обращения считаются при записи, уникальные ip - оценка по скетчу HyperLogLog за все время, который
+ * пополняется при сбросе суточных скетчей. Счетчики не зависят от срока хранения сырых записей.
+ */
+public interface EndpointHitTotalStorage {
+
+    /**
+     * Прибавляет counters корзин любого уровня к счетчикам их пар app - uri за все время.
+     */
+    void addToTotals(Map<BucketKey, Long> counters);
+
+    /**
+     * Объединяет суточные скетчи уникальных ip со скетчами за все время и пересчитывает unique_hits.
+     */
+    void mergeTotalSketches(Map<BucketKey, HyperLogLog> daySketches);
+
+    List<EndpointHitTotalDto> findTotals(String[] uris);
+
+    List<ResourceHitsDto> findResourceTotals(String app, String resourceType, long[] resourceIds, boolean unique);
+}
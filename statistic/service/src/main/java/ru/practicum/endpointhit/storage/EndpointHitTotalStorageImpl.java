@@ -0,0 +1,119 @@
+package ru.practicum.endpointhit.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.EndpointHitTotalDto;
+import ru.practicum.dto.ResourceHitsDto;
+import ru.practicum.endpointhit.sketch.HyperLogLog;
+import ru.practicum.mapper.EndpointHitMapper;
+import ru.practicum.model.EndpointHit;
+
+import java.sql.Types;
+import java.util.*;
+
+@RequiredArgsConstructor
+public class EndpointHitTotalStorageImpl implements EndpointHitTotalStorage {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String POSTGRESQL_UPSERT_TOTAL =
+            "INSERT INTO endpointhit_total (app, uri, resource_type, resource_id, hits, unique_hits) " +
+                    "VALUES (?, ?, ?, ?, ?, 0) " +
+                    "ON CONFLICT (app, uri) DO UPDATE SET hits = endpointhit_total.hits + EXCLUDED.hits";
+    private static final String H2_UPSERT_TOTAL =
+            "MERGE INTO endpointhit_total t " +
+                    "USING (SELECT CAST(? AS VARCHAR(50)) AS app, CAST(? AS VARCHAR(50)) AS uri, " +
+                    "CAST(? AS VARCHAR(50)) AS resource_type, CAST(? AS BIGINT) AS resource_id, " +
+                    "CAST(? AS BIGINT) AS hits) s " +
+                    "ON t.app = s.app AND t.uri = s.uri " +
+                    "WHEN MATCHED THEN UPDATE SET hits = t.hits + s.hits " +
+                    "WHEN NOT MATCHED THEN INSERT (app, uri, resource_type, resource_id, hits, unique_hits) " +
+                    "VALUES (s.app, s.uri, s.resource_type, s.resource_id, s.hits, 0)";
+    private static final String SELECT_SKETCH_FOR_UPDATE =
+            "SELECT sketch FROM endpointhit_total WHERE app = ? AND uri = ? FOR UPDATE";
+    private static final String UPDATE_SKETCH =
+            "UPDATE endpointhit_total SET sketch = ?, unique_hits = ? WHERE app = ? AND uri = ?";
+    private static final String SELECT_RESOURCE_TOTALS =
+            "SELECT resource_id, SUM(%s) AS hits FROM endpointhit_total " +
+                    "WHERE app = ? AND resource_type = ? AND resource_id = ANY(?) GROUP BY resource_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private volatile SqlDialect dialect;
+
+    @Override
+    public void addToTotals(Map<BucketKey, Long> counters) {
+        Map<BucketKey, Long> totals = new TreeMap<>();
+        counters.forEach((key, hits) -> totals.merge(key.withoutBucket(), hits, Long::sum));
+        upsertTotals(totals);
+    }
+
+    @Override
+    public void mergeTotalSketches(Map<BucketKey, HyperLogLog> daySketches) {
+        Map<BucketKey, HyperLogLog> sketches = new TreeMap<>();
+        daySketches.forEach((key, sketch) -> sketches.computeIfAbsent(key.withoutBucket(),
+                total -> new HyperLogLog()).merge(sketch));
+        // скетч может опередить счетчики обращений, поэтому строка создается, если ее еще нет
+        Map<BucketKey, Long> noHits = new TreeMap<>();
+        sketches.keySet().forEach(key -> noHits.put(key, 0L));
+        upsertTotals(noHits);
+
+        for (Map.Entry<BucketKey, HyperLogLog> entry : sketches.entrySet()) {
+            String app = entry.getKey().getApp();
+            String uri = entry.getKey().getUri();
+            byte[] stored = jdbcTemplate.queryForObject(SELECT_SKETCH_FOR_UPDATE, byte[].class, app, uri);
+            HyperLogLog sketch = entry.getValue();
+            if (stored != null) {
+                sketch.merge(HyperLogLog.fromBytes(stored));
+            }
+            jdbcTemplate.update(UPDATE_SKETCH, sketch.toBytes(), sketch.estimate(), app, uri);
+        }
+    }
+
+    @Override
+    public List<EndpointHitTotalDto> findTotals(String[] uris) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("uris", Arrays.asList(uris));
+
+        return namedJdbcTemplate.query("SELECT app, uri, hits, unique_hits FROM endpointhit_total " +
+                "WHERE uri IN (:uris)", parameters, (rs, rowNum) -> new EndpointHitTotalDto(
+                rs.getString("app"),
+                rs.getString("uri"),
+                rs.getLong("hits"),
+                rs.getLong("unique_hits")));
+    }
+
+    @Override
+    public List<ResourceHitsDto> findResourceTotals(String app, String resourceType, long[] resourceIds,
+                                                    boolean unique) {
+        Long[] ids = Arrays.stream(resourceIds).boxed().toArray(Long[]::new);
+
+        return jdbcTemplate.query(String.format(SELECT_RESOURCE_TOTALS, unique ? "unique_hits" : "hits"), ps -> {
+            ps.setString(1, app);
+            ps.setString(2, resourceType);
+            ps.setArray(3, ps.getConnection().createArrayOf("BIGINT", ids));
+        }, (rs, rowNum) -> new ResourceHitsDto(rs.getLong("resource_id"), rs.getLong("hits")));
+    }
+
+    private void upsertTotals(Map<BucketKey, Long> totals) {
+        List<Map.Entry<BucketKey, Long>> counters = new ArrayList<>(totals.entrySet());
+        jdbcTemplate.batchUpdate(isPostgresql() ? POSTGRESQL_UPSERT_TOTAL : H2_UPSERT_TOTAL, counters, BATCH_SIZE,
+                (ps, counter) -> {
+                    EndpointHit resource = EndpointHitMapper.makeEndpointHit(
+                            new EndpointHitDto(counter.getKey().getApp(), counter.getKey().getUri(), null, null));
+                    ps.setString(1, resource.getApp());
+                    ps.setString(2, resource.getUri());
+                    ps.setString(3, resource.getResourceType());
+                    ps.setObject(4, resource.getResourceId(), Types.BIGINT);
+                    ps.setLong(5, counter.getValue());
+                });
+    }
+
+    private boolean isPostgresql() {
+        if (dialect == null) {
+            dialect = SqlDialect.of(jdbcTemplate);
+        }
+        return dialect == SqlDialect.POSTGRESQL;
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.endpointhit.storage;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/*
+ * Все уровни агрегатов пополняются при записи обращений, а ограничение срока хранения
+ * удаляет только мелкие уровни: дневные агрегаты хранятся все время
+ */
+@Getter
+@RequiredArgsConstructor
+public enum RollupGranularity {
+    MINUTE("endpointhit_minute", null, ChronoUnit.MINUTES),
+    HOUR("endpointhit_hour", "endpointhit_hour_sketch", ChronoUnit.HOURS),
+    DAY("endpointhit_day", "endpointhit_day_sketch", ChronoUnit.DAYS);
+
+    private final String tableName;
+    private final String sketchTableName;
+    private final ChronoUnit unit;
+
+    public boolean hasSketches() {
+        return sketchTableName != null;
+    }
+
+    public LocalDateTime floor(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime dateTime) {
+        LocalDateTime floor = floor(dateTime);
+        return floor.equals(dateTime) ? floor : floor.plus(1, unit);
+    }
+}
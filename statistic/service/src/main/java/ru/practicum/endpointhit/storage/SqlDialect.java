@@ -0,0 +1,18 @@
+package ru.practicum.endpointhit.storage;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public enum SqlDialect {
+    POSTGRESQL,
+    H2;
+
+    public static SqlDialect of(JdbcTemplate jdbcTemplate) {
+        String productName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (productName != null && productName.toLowerCase().contains("postgres")) {
+            return POSTGRESQL;
+        }
+        return H2;
+    }
+}
@@ -0,0 +1,15 @@
+DROP TABLE IF EXISTS endpointhit CASCADE;
+
+CREATE TABLE IF NOT EXISTS endpointhit (
+    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    app VARCHAR(50) NOT NULL,
+    uri VARCHAR(50) NOT NULL,
+    ip VARCHAR(50) NOT NULL,
+    date_time TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    resource_type VARCHAR(50),
+    resource_id BIGINT
+);
+
+CREATE INDEX IF NOT EXISTS endpointhit_date_time ON endpointhit (date_time);
+
+CREATE INDEX IF NOT EXISTS endpointhit_resource ON endpointhit (resource_type, resource_id, date_time);
@@ -0,0 +1,18 @@
+DROP TABLE IF EXISTS endpointhit CASCADE;
+
+CREATE TABLE IF NOT EXISTS endpointhit (
+    id BIGSERIAL NOT NULL,
+    app VARCHAR(50) NOT NULL,
+    uri VARCHAR(50) NOT NULL,
+    ip VARCHAR(50) NOT NULL,
+    date_time TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    resource_type VARCHAR(50),
+    resource_id BIGINT,
+    CONSTRAINT pk_endpointhit PRIMARY KEY (id, date_time)
+) PARTITION BY RANGE (date_time);
+
+CREATE TABLE IF NOT EXISTS endpointhit_default PARTITION OF endpointhit DEFAULT;
+
+CREATE INDEX IF NOT EXISTS endpointhit_date_time ON endpointhit (date_time);
+
+CREATE INDEX IF NOT EXISTS endpointhit_resource ON endpointhit (resource_type, resource_id, date_time);
@@ -1,9 +1,66 @@
-DROP TABLE IF EXISTS endpointhit CASCADE;
+DROP TABLE IF EXISTS endpointhit_minute CASCADE;
 
-CREATE TABLE IF NOT EXISTS endpointhit (
-    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+CREATE TABLE IF NOT EXISTS endpointhit_minute (
     app VARCHAR(50) NOT NULL,
     uri VARCHAR(50) NOT NULL,
-    ip VARCHAR(50) NOT NULL,
-    date_time TIMESTAMP WITHOUT TIME ZONE NOT NULL
-);
\ No newline at end of file
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    CONSTRAINT pk_endpointhit_minute PRIMARY KEY (bucket, app, uri)
+);
+
+DROP TABLE IF EXISTS endpointhit_hour CASCADE;
+
+CREATE TABLE IF NOT EXISTS endpointhit_hour (
+    app VARCHAR(50) NOT NULL,
+    uri VARCHAR(50) NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    CONSTRAINT pk_endpointhit_hour PRIMARY KEY (bucket, app, uri)
+);
+
+DROP TABLE IF EXISTS endpointhit_day CASCADE;
+
+CREATE TABLE IF NOT EXISTS endpointhit_day (
+    app VARCHAR(50) NOT NULL,
+    uri VARCHAR(50) NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    CONSTRAINT pk_endpointhit_day PRIMARY KEY (bucket, app, uri)
+);
+
+DROP TABLE IF EXISTS endpointhit_hour_sketch CASCADE;
+
+CREATE TABLE IF NOT EXISTS endpointhit_hour_sketch (
+    app VARCHAR(50) NOT NULL,
+    uri VARCHAR(50) NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    sketch BYTEA NOT NULL,
+    CONSTRAINT pk_endpointhit_hour_sketch PRIMARY KEY (bucket, app, uri)
+);
+
+DROP TABLE IF EXISTS endpointhit_day_sketch CASCADE;
+
+CREATE TABLE IF NOT EXISTS endpointhit_day_sketch (
+    app VARCHAR(50) NOT NULL,
+    uri VARCHAR(50) NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    sketch BYTEA NOT NULL,
+    CONSTRAINT pk_endpointhit_day_sketch PRIMARY KEY (bucket, app, uri)
+);
+
+DROP TABLE IF EXISTS endpointhit_total CASCADE;
+
+CREATE TABLE IF NOT EXISTS endpointhit_total (
+    app VARCHAR(50) NOT NULL,
+    uri VARCHAR(50) NOT NULL,
+    resource_type VARCHAR(50),
+    resource_id BIGINT,
+    hits BIGINT NOT NULL,
+    unique_hits BIGINT NOT NULL,
+    sketch BYTEA,
+    CONSTRAINT pk_endpointhit_total PRIMARY KEY (app, uri)
+);
+
+CREATE INDEX IF NOT EXISTS endpointhit_total_uri ON endpointhit_total (uri);
+
+CREATE INDEX IF NOT EXISTS endpointhit_total_resource ON endpointhit_total (app, resource_type, resource_id);
@@ -11,6 +11,9 @@ import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.endpointhit.controller.EndpointHitController;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.EndpointHitStatsDto;
+import ru.practicum.dto.EndpointHitTotalDto;
+import ru.practicum.dto.ResourceHitsDto;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.endpointhit.service.EndpointHitServiceImpl;
 
 import java.nio.charset.StandardCharsets;
@@ -75,9 +78,31 @@ class EndpointHitControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void addNewHitsBatchAndThenOk() throws Exception {
+        mvc.perform(post("/hit/batch")
+                        .content(objectMapper.writeValueAsString(List.of(endpointHitDto, endpointHitDto)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void addNewHitsBatchWithInvalidHitAndThenThrowsBadRequest() throws Exception {
+        EndpointHitDto invalidDto = new EndpointHitDto("", "uriText", "ipText", LocalDateTime.now());
+
+        mvc.perform(post("/hit/batch")
+                        .content(objectMapper.writeValueAsString(List.of(endpointHitDto, invalidDto)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getEndpointHitStatsAndThenOk() throws Exception {
-        when(service.getStats(any(), any(), any(), any())).thenReturn(List.of(statsDto));
+        when(service.getStats(any(), any(), any(), any(), any())).thenReturn(List.of(statsDto));
 
         mvc.perform(get("/stats")
                         .param("start", encodedStart)
@@ -91,7 +116,7 @@ class EndpointHitControllerTest {
 
     @Test
     void getEndpointHitStatsWithoutOneParamAndThrowsBadRequest() throws Exception {
-        when(service.getStats(any(), any(), any(), any())).thenReturn(List.of(statsDto));
+        when(service.getStats(any(), any(), any(), any(), any())).thenReturn(List.of(statsDto));
 
         mvc.perform(get("/stats")
                         .param("start", start.toString()) // no end
@@ -100,4 +125,50 @@ class EndpointHitControllerTest {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isInternalServerError());
     }
+
+    @Test
+    void getResourceStatsAndThenOk() throws Exception {
+        when(service.getResourceStats(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(new ResourceHitsDto(1, 2)));
+
+        mvc.perform(get("/stats/resources")
+                        .param("start", encodedStart)
+                        .param("end", encodedEnd)
+                        .param("type", "events")
+                        .param("ids", "1,2")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].hits").value(2));
+    }
+
+    @Test
+    void getTotalsAndThenOk() throws Exception {
+        when(service.getTotals(any())).thenReturn(List.of(new EndpointHitTotalDto("appText", "/events/1", 3, 2)));
+
+        mvc.perform(get("/stats/totals")
+                        .param("uris", "/events/1")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hits").value(3))
+                .andExpect(jsonPath("$[0].uniqueHits").value(2));
+    }
+
+    @Test
+    void queryStatsAndThenOk() throws Exception {
+        when(service.queryStats(any())).thenReturn(List.of(List.of(statsDto), List.of()));
+
+        mvc.perform(post("/stats/query")
+                        .content(objectMapper.writeValueAsString(List.of(
+                                new StatsQueryDto(start, end, new String[]{"uriText"}, true, false),
+                                new StatsQueryDto(start, end, null, false, false))))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0][0].uri").value(statsDto.getUri()));
+    }
 }
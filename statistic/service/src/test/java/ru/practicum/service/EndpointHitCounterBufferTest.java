@@ -0,0 +1,90 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.EndpointHitStatsDto;
+import ru.practicum.endpointhit.service.EndpointHitCounterBuffer;
+import ru.practicum.endpointhit.storage.BucketKey;
+import ru.practicum.endpointhit.storage.EndpointHitStorage;
+import ru.practicum.endpointhit.storage.RollupGranularity;
+import ru.practicum.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class EndpointHitCounterBufferTest {
+
+    private final LocalDateTime dateTime = LocalDateTime.of(2023, 1, 1, 10, 30, 15);
+    private final LocalDateTime hour = dateTime.withMinute(0).withSecond(0);
+    private final String[] uris = new String[]{"uriText"};
+    private EndpointHitStorage storage;
+    private EndpointHitCounterBuffer buffer;
+
+    @BeforeEach
+    void createBuffer() {
+        storage = mock(EndpointHitStorage.class);
+        buffer = new EndpointHitCounterBuffer(storage,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        buffer.add(List.of(hit(dateTime), hit(dateTime), hit(dateTime.minusDays(1))));
+    }
+
+    @Test
+    void findHitsBeforeFlushAndThenOk() {
+        List<EndpointHitStatsDto> stats = buffer.findHits(RollupGranularity.HOUR, hour, hour.plusHours(1), uris);
+
+        assertThat(stats.size(), equalTo(1));
+        assertThat(stats.get(0).getHits(), equalTo(2L));
+        assertThat(buffer.findHits(RollupGranularity.HOUR, hour, hour.plusHours(1), new String[]{"other"}).size(),
+                equalTo(0));
+        assertThat(buffer.findTotalHits(), equalTo(Map.of(new BucketKey("appText", "uriText", null), 3L)));
+    }
+
+    @Test
+    void flushWritesOneCounterPerBucketAndThenOk() {
+        buffer.flush();
+        buffer.flush();
+
+        verify(storage, times(1)).addToRollups(eq(RollupGranularity.MINUTE),
+                argThat(counters -> counters.size() == 2));
+        verify(storage, times(1)).addToRollups(eq(RollupGranularity.HOUR),
+                argThat(counters -> Long.valueOf(2).equals(counters.get(new BucketKey("appText", "uriText", hour)))));
+        verify(storage, times(1)).addToRollups(eq(RollupGranularity.DAY),
+                argThat(counters -> counters.size() == 2));
+        verify(storage, times(1)).addToTotals(argThat(counters -> counters.size() == 2));
+        assertThat(buffer.findHits(RollupGranularity.HOUR, hour, hour.plusHours(1), uris).size(), equalTo(0));
+        assertThat(buffer.findTotalHits().isEmpty(), equalTo(true));
+    }
+
+    @Test
+    void failedFlushKeepsCountersAndThenOk() {
+        doThrow(new IllegalStateException("connection refused")).doNothing()
+                .when(storage).addToTotals(any());
+
+        buffer.flush();
+        List<EndpointHitStatsDto> stats = buffer.findHits(RollupGranularity.HOUR, hour, hour.plusHours(1), uris);
+        buffer.add(List.of(hit(dateTime)));
+        buffer.flush();
+
+        assertThat(stats.size(), equalTo(1));
+        assertThat(stats.get(0).getHits(), equalTo(2L));
+        verify(storage, times(1)).addToRollups(eq(RollupGranularity.HOUR),
+                argThat(counters -> Long.valueOf(3).equals(counters.get(new BucketKey("appText", "uriText", hour)))));
+    }
+
+    private EndpointHit hit(LocalDateTime dateTime) {
+        return new EndpointHit(0, "appText", "uriText", "ipText", dateTime, null, null);
+    }
+}
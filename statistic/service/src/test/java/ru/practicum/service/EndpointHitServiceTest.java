@@ -1,32 +1,69 @@
 package ru.practicum.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.EndpointHitStatsDto;
+import ru.practicum.exception.ValidateException;
 import ru.practicum.mapper.EndpointHitMapper;
 import ru.practicum.model.EndpointHit;
+import ru.practicum.endpointhit.retention.HitRetentionPolicy;
+import ru.practicum.endpointhit.service.EndpointHitCounterBuffer;
 import ru.practicum.endpointhit.service.EndpointHitServiceImpl;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.endpointhit.service.StatsQueryExecutor;
+import ru.practicum.endpointhit.service.StatsResultCache;
+import ru.practicum.endpointhit.sketch.EndpointHitSketch;
+import ru.practicum.endpointhit.sketch.EndpointHitSketchBuffer;
+import ru.practicum.endpointhit.sketch.HyperLogLog;
 import ru.practicum.endpointhit.storage.EndpointHitStorage;
+import ru.practicum.endpointhit.storage.RollupGranularity;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class EndpointHitServiceTest {
 
+    // закрытыми считаются только диапазоны старше ста лет, поэтому кэш не влияет на остальные проверки
+    private static final long NOTHING_CLOSED_MS = 100L * 365 * 24 * 60 * 60 * 1000;
+
     @Mock
     private EndpointHitStorage storage;
+    @Spy
+    private HitRetentionPolicy retentionPolicy = new HitRetentionPolicy(0, 0);
+    @Spy
+    private StatsResultCache resultCache = new StatsResultCache(100, NOTHING_CLOSED_MS, new SimpleMeterRegistry());
+    @Spy
+    private StatsQueryExecutor queryExecutor = new StatsQueryExecutor(2, mock(PlatformTransactionManager.class));
+    @Mock
+    private EndpointHitSketchBuffer sketchBuffer;
+    @Spy
+    private EndpointHitCounterBuffer counterBuffer = new EndpointHitCounterBuffer(mock(EndpointHitStorage.class),
+            new TransactionTemplate(mock(PlatformTransactionManager.class)));
     @InjectMocks
     private EndpointHitServiceImpl service;
 
@@ -59,18 +96,27 @@ class EndpointHitServiceTest {
         assertThat(currentDto.getUri(), equalTo(endpointHit.getUri()));
     }
 
+    @Test
+    void addNewHitsBatchAndThenOk() {
+        service.addCallEndpointHits(List.of(endpointHitDto, endpointHitDto));
+
+        verify(storage).saveAllInBatch(argThat(hits -> hits.size() == 2));
+    }
+
     @Test
     void getStatsWhenEndIsBeforeStartAndThenOkWithEmptyList() {
-        List<EndpointHitStatsDto> stats = service.getStats(start, end, null, null);
+        List<EndpointHitStatsDto> stats = service.getStats(start, end, null, null, false);
 
         assertThat(stats.size(), equalTo(0));
     }
 
     @Test
     void getStatsWithUrisAndThenOk() {
-        when(storage.findEndpointHitForUriIn(any(), any(), any())).thenReturn(List.of(statsDto));
+        when(storage.findRollupStats(eq(RollupGranularity.DAY), any(), any(), any())).thenReturn(List.of());
+        when(storage.findRollupStats(eq(RollupGranularity.HOUR), any(), any(), any())).thenReturn(List.of(statsDto));
+        when(storage.findRollupStats(eq(RollupGranularity.MINUTE), any(), any(), any())).thenReturn(List.of());
 
-        List<EndpointHitStatsDto> stats = service.getStats(start, end, uris, null);
+        List<EndpointHitStatsDto> stats = service.getStats(start, end, uris, null, false);
 
         assertThat(stats.size(), equalTo(1));
         assertThat(stats.get(0).getUri(), equalTo(statsDto.getUri()));
@@ -82,7 +128,7 @@ class EndpointHitServiceTest {
     void getStatsWithUrisAndUniqueThenOk() {
         when(storage.findEndpointHitForUriInAndUnique(any(), any(), any())).thenReturn(List.of(statsDto));
 
-        List<EndpointHitStatsDto> stats = service.getStats(start, end, uris, true);
+        List<EndpointHitStatsDto> stats = service.getStats(start, end, uris, true, false);
 
         assertThat(stats.size(), equalTo(1));
         assertThat(stats.get(0).getUri(), equalTo(statsDto.getUri()));
@@ -94,7 +140,7 @@ class EndpointHitServiceTest {
     void getStatsWithoutUrisAndWithUniqueThenOk() {
         when(storage.findAllEndpointHitForUnique(any(), any())).thenReturn(List.of(statsDto));
 
-        List<EndpointHitStatsDto> stats = service.getStats(start, end, null, true);
+        List<EndpointHitStatsDto> stats = service.getStats(start, end, null, true, false);
 
         assertThat(stats.size(), equalTo(1));
         assertThat(stats.get(0).getUri(), equalTo(statsDto.getUri()));
@@ -104,13 +150,157 @@ class EndpointHitServiceTest {
 
     @Test
     void getStatsWithDatesOnlyAndThenOk() {
-        when(storage.findAllEndpointHitByDate(any(), any())).thenReturn(List.of(statsDto));
+        when(storage.findRollupStats(eq(RollupGranularity.DAY), any(), any(), any())).thenReturn(List.of());
+        when(storage.findRollupStats(eq(RollupGranularity.HOUR), any(), any(), any())).thenReturn(List.of(statsDto));
+        when(storage.findRollupStats(eq(RollupGranularity.MINUTE), any(), any(), any())).thenReturn(List.of());
 
-        List<EndpointHitStatsDto> stats = service.getStats(start, end, null, null);
+        List<EndpointHitStatsDto> stats = service.getStats(start, end, null, null, false);
 
         assertThat(stats.size(), equalTo(1));
         assertThat(stats.get(0).getUri(), equalTo(statsDto.getUri()));
         assertThat(stats.get(0).getApp(), equalTo(statsDto.getApp()));
         assertThat(stats.get(0).getHits(), equalTo(statsDto.getHits()));
     }
+
+    @Test
+    void getStatsMergesRollupsWithRawEdgesAndThenOk() {
+        LocalDateTime rangeStart = LocalDateTime.of(2023, 1, 1, 10, 30, 15);
+        LocalDateTime rangeEnd = LocalDateTime.of(2023, 1, 1, 12, 10, 0);
+        when(storage.findRollupStats(any(), any(), any(), any())).thenReturn(List.of(statsDto));
+        when(storage.findAllEndpointHitByDate(any(), any())).thenReturn(List.of(statsDto));
+
+        List<EndpointHitStatsDto> stats = service.getStats(rangeStart, rangeEnd, null, false, false);
+
+        assertThat(stats.size(), equalTo(1));
+        assertThat(stats.get(0).getHits(), equalTo(5L));
+        verify(storage).findRollupStats(RollupGranularity.HOUR, rangeStart.plusMinutes(30).withSecond(0),
+                rangeEnd.withMinute(0), null);
+        verify(storage).findAllEndpointHitByDate(rangeStart, rangeStart.withSecond(59).withNano(999_999_000));
+        verify(storage).findAllEndpointHitByDate(rangeEnd, rangeEnd);
+    }
+
+    @Test
+    void getApproximateUniqueStatsAndThenOk() {
+        LocalDateTime rangeStart = LocalDateTime.of(2023, 1, 1, 10, 30, 0);
+        LocalDateTime rangeEnd = LocalDateTime.of(2023, 1, 1, 12, 10, 0);
+        HyperLogLog hourSketch = new HyperLogLog();
+        hourSketch.add("ip1");
+        hourSketch.add("ip2");
+        HyperLogLog rawSketch = new HyperLogLog();
+        rawSketch.add("ip2");
+        rawSketch.add("ip3");
+        when(storage.findSketches(any(), any(), any(), any()))
+                .thenReturn(List.of(new EndpointHitSketch("appText", "uriText", hourSketch)));
+        when(storage.findRawSketches(any(), any(), any()))
+                .thenReturn(List.of(new EndpointHitSketch("appText", "uriText", rawSketch)));
+
+        List<EndpointHitStatsDto> stats = service.getStats(rangeStart, rangeEnd, uris, true, true);
+
+        assertThat(stats.size(), equalTo(1));
+        assertThat(stats.get(0).getHits(), equalTo(3L));
+        verify(storage).findSketches(RollupGranularity.HOUR, rangeStart.withHour(11).withMinute(0),
+                rangeEnd.withMinute(0), uris);
+    }
+
+    @Test
+    void getStatsOutsideRawRetentionUsesWholeHoursAndThenOk() {
+        EndpointHitServiceImpl retainingService = makeRetainingService();
+        LocalDateTime rangeStart = LocalDate.now().minusDays(60).atTime(10, 0, 0);
+        LocalDateTime rangeEnd = rangeStart.withHour(12).withMinute(59).withSecond(59);
+        when(storage.findRollupStats(any(), any(), any(), any())).thenReturn(List.of(statsDto));
+
+        List<EndpointHitStatsDto> stats = retainingService.getStats(rangeStart, rangeEnd, null, false, false);
+
+        assertThat(stats.get(0).getHits(), equalTo(1L));
+        verify(storage).findRollupStats(RollupGranularity.HOUR, rangeStart, rangeEnd.withHour(13).withMinute(0)
+                .withSecond(0), null);
+        verify(storage, never()).findAllEndpointHitByDate(any(), any());
+    }
+
+    @Test
+    void getStatsOutsideRawRetentionWithPartialHourAndThenValidateException() {
+        EndpointHitServiceImpl retainingService = makeRetainingService();
+        LocalDateTime rangeStart = LocalDate.now().minusDays(60).atTime(10, 30, 15);
+        LocalDateTime rangeEnd = rangeStart.withHour(12).withMinute(59).withSecond(59);
+
+        assertThrows(ValidateException.class,
+                () -> retainingService.getStats(rangeStart, rangeEnd, null, false, false));
+        assertThrows(ValidateException.class,
+                () -> retainingService.getStats(rangeStart.withMinute(0).withSecond(0), rangeEnd.withMinute(10),
+                        null, false, false));
+        verify(storage, never()).findRollupStats(any(), any(), any(), any());
+    }
+
+    @Test
+    void getExactUniqueStatsOutsideRawRetentionAndThenValidateException() {
+        EndpointHitServiceImpl retainingService = makeRetainingService();
+        LocalDateTime rangeStart = LocalDate.now().minusDays(60).atStartOfDay();
+
+        assertThrows(ValidateException.class,
+                () -> retainingService.getStats(rangeStart, LocalDateTime.now(), uris, true, false));
+        verify(storage, never()).findEndpointHitForUriInAndUnique(any(), any(), any());
+    }
+
+    @Test
+    void getResourceStatsOutsideRawRetentionAndThenValidateException() {
+        EndpointHitServiceImpl retainingService = makeRetainingService();
+        LocalDateTime rangeStart = LocalDate.now().minusDays(60).atStartOfDay();
+
+        assertThrows(ValidateException.class, () -> retainingService.getResourceStats(rangeStart,
+                LocalDateTime.now(), "events", new long[]{1}, false));
+        verify(storage, never()).findResourceStats(any(), any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void getStatsForClosedRangeIsCachedUntilBackdatedHitAndThenOk() {
+        EndpointHitServiceImpl cachingService = makeCachingService();
+        LocalDateTime rangeStart = LocalDateTime.of(2023, 1, 1, 10, 0, 0);
+        LocalDateTime rangeEnd = LocalDateTime.of(2023, 1, 1, 12, 0, 0);
+        when(storage.findRollupStats(any(), any(), any(), any())).thenReturn(List.of(statsDto));
+
+        cachingService.getStats(rangeStart, rangeEnd, uris, false, false);
+        cachingService.getStats(rangeStart, rangeEnd, uris, false, false);
+        cachingService.addCallEndpointHits(List.of(new EndpointHitDto("appText", "uriText", "ipText",
+                rangeStart.plusMinutes(5))));
+        cachingService.getStats(rangeStart, rangeEnd, uris, false, false);
+
+        verify(storage, times(2)).findRollupStats(RollupGranularity.HOUR, rangeStart, rangeEnd, uris);
+    }
+
+    @Test
+    void getStatsUpToNowAggregatesOnlyOpenTailAndThenOk() {
+        EndpointHitServiceImpl cachingService = makeCachingService();
+        LocalDateTime rangeStart = LocalDateTime.now().minusDays(3);
+
+        cachingService.getStats(rangeStart, LocalDateTime.now(), uris, false, false);
+        cachingService.getStats(rangeStart, LocalDateTime.now(), uris, false, false);
+
+        verify(storage, times(1)).findRollupStats(eq(RollupGranularity.DAY), any(), any(), any());
+    }
+
+    @Test
+    void queryStatsReturnsResultsInQueryOrderAndThenOk() {
+        EndpointHitStatsDto otherStatsDto = new EndpointHitStatsDto("appText", "otherUriText", 2);
+        when(storage.findEndpointHitForUriInAndUnique(any(), any(), any())).thenReturn(List.of(statsDto));
+        when(storage.findAllEndpointHitForUnique(any(), any())).thenReturn(List.of(statsDto, otherStatsDto));
+
+        List<List<EndpointHitStatsDto>> results = service.queryStats(List.of(
+                new StatsQueryDto(start, end, uris, true, false),
+                new StatsQueryDto(start, end, null, true, false)));
+
+        assertThat(results.size(), equalTo(2));
+        assertThat(results.get(0).size(), equalTo(1));
+        assertThat(results.get(1).size(), equalTo(2));
+    }
+
+    private EndpointHitServiceImpl makeRetainingService() {
+        return new EndpointHitServiceImpl(storage, new HitRetentionPolicy(30, 0), resultCache, queryExecutor,
+                sketchBuffer, counterBuffer);
+    }
+
+    private EndpointHitServiceImpl makeCachingService() {
+        return new EndpointHitServiceImpl(storage, retentionPolicy,
+                new StatsResultCache(100, 300_000, new SimpleMeterRegistry()), queryExecutor,
+                sketchBuffer, counterBuffer);
+    }
 }
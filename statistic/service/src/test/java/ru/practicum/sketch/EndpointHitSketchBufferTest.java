@@ -0,0 +1,79 @@
+package ru.practicum.sketch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.endpointhit.sketch.EndpointHitSketch;
+import ru.practicum.endpointhit.sketch.EndpointHitSketchBuffer;
+import ru.practicum.endpointhit.storage.EndpointHitStorage;
+import ru.practicum.endpointhit.storage.RollupGranularity;
+import ru.practicum.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class EndpointHitSketchBufferTest {
+
+    private final LocalDateTime dateTime = LocalDateTime.of(2023, 1, 1, 10, 30, 15);
+    private final LocalDateTime hour = dateTime.withMinute(0).withSecond(0);
+    private final String[] uris = new String[]{"uriText"};
+    private EndpointHitStorage storage;
+    private EndpointHitSketchBuffer buffer;
+
+    @BeforeEach
+    void createBuffer() {
+        storage = mock(EndpointHitStorage.class);
+        buffer = new EndpointHitSketchBuffer(storage, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        buffer.add(List.of(hit("ipText"), hit("ipText"), hit("otherIpText")));
+    }
+
+    @Test
+    void findSketchesBeforeFlushAndThenOk() {
+        List<EndpointHitSketch> sketches = buffer.findSketches(RollupGranularity.HOUR, hour, hour.plusHours(1), uris);
+
+        assertThat(sketches.size(), equalTo(1));
+        assertThat(sketches.get(0).getSketch().estimate(), equalTo(2L));
+        assertThat(buffer.findSketches(RollupGranularity.HOUR, hour, hour.plusHours(1), new String[]{"other"})
+                .size(), equalTo(0));
+    }
+
+    @Test
+    void flushWritesOneSketchPerBucketAndThenOk() {
+        buffer.flush();
+        buffer.flush();
+
+        verify(storage, times(1)).mergeSketches(eq(RollupGranularity.HOUR), argThat(sketches -> sketches.size() == 1));
+        verify(storage, times(1)).mergeSketches(eq(RollupGranularity.DAY), argThat(sketches -> sketches.size() == 1));
+        verify(storage, times(1)).mergeTotalSketches(argThat(sketches -> sketches.size() == 1));
+        assertThat(buffer.findSketches(RollupGranularity.HOUR, hour, hour.plusHours(1), uris).size(), equalTo(0));
+    }
+
+    @Test
+    void failedFlushKeepsSketchesAndThenOk() {
+        doThrow(new IllegalStateException("connection refused")).doNothing()
+                .when(storage).mergeSketches(eq(RollupGranularity.HOUR), any());
+
+        buffer.flush();
+        List<EndpointHitSketch> sketches = buffer.findSketches(RollupGranularity.HOUR, hour, hour.plusHours(1), uris);
+        buffer.flush();
+
+        assertThat(sketches.size(), equalTo(1));
+        assertThat(sketches.get(0).getSketch().estimate(), equalTo(2L));
+        verify(storage, times(2)).mergeSketches(eq(RollupGranularity.HOUR), argThat(batch -> batch.size() == 1));
+    }
+
+    private EndpointHit hit(String ip) {
+        return new EndpointHit(0, "appText", "uriText", ip, dateTime, null, null);
+    }
+}
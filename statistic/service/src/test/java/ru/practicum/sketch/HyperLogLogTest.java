@@ -0,0 +1,53 @@
+package ru.practicum.sketch;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.endpointhit.sketch.HyperLogLog;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimateSmallSetExactly() {
+        HyperLogLog sketch = new HyperLogLog();
+
+        for (int i = 0; i < 100; i++) {
+            sketch.add("192.168.0." + i);
+            sketch.add("192.168.0." + i);
+        }
+
+        assertThat(sketch.estimate(), equalTo(100L));
+    }
+
+    @Test
+    void estimateLargeSetWithinErrorBound() {
+        HyperLogLog sketch = new HyperLogLog();
+        int count = 1_000_000;
+
+        for (int i = 0; i < count; i++) {
+            sketch.add("10." + (i >> 16) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff));
+        }
+
+        double error = Math.abs(sketch.estimate() - count) / (double) count;
+        assertThat(error, lessThan(0.07));
+    }
+
+    @Test
+    void mergeEqualsUnionAndSurvivesSerialization() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+
+        for (int i = 0; i < 5_000; i++) {
+            String value = "ip" + i;
+            (i % 2 == 0 ? first : second).add(value);
+            union.add(value);
+        }
+        HyperLogLog merged = HyperLogLog.fromBytes(first.toBytes());
+        merged.merge(HyperLogLog.fromBytes(second.toBytes()));
+
+        assertThat(merged.estimate(), equalTo(union.estimate()));
+    }
+}
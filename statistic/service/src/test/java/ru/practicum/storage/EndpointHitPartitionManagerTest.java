@@ -0,0 +1,76 @@
+package ru.practicum.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.endpointhit.retention.HitRetentionPolicy;
+import ru.practicum.endpointhit.storage.EndpointHitPartitionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EndpointHitPartitionManagerTest {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final LocalDate today = LocalDate.now();
+    private final LocalDate backdated = today.minusDays(3);
+    private JdbcTemplate jdbcTemplate;
+    private EndpointHitPartitionManager partitionManager;
+
+    @BeforeEach
+    void createPartitionManager() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+        when(jdbcTemplate.queryForList(startsWith("SELECT c.relname"), eq(String.class)))
+                .thenReturn(List.of("endpointhit_default", partitionName(today)));
+        partitionManager = new EndpointHitPartitionManager(jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new HitRetentionPolicy(30, 0), 1);
+    }
+
+    @Test
+    void backdatedHitIsMovedIntoNewPartitionAndThenOk() {
+        // обращение с прошлой датой записано в endpointhit_default, партиции за его день еще нет
+        when(jdbcTemplate.queryForList(startsWith("SELECT DISTINCT"), eq(LocalDate.class), any()))
+                .thenReturn(List.of(backdated));
+        when(jdbcTemplate.update(startsWith("WITH moved"), eq(backdated.atStartOfDay()),
+                eq(backdated.plusDays(1).atStartOfDay()))).thenReturn(1);
+
+        partitionManager.maintainPartitions();
+
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS " + partitionName(backdated)));
+        verify(jdbcTemplate).execute(startsWith("CREATE TABLE IF NOT EXISTS " + partitionName(today.plusDays(1))));
+        verify(jdbcTemplate, never()).execute(startsWith("CREATE TABLE IF NOT EXISTS " + partitionName(today)));
+        verify(jdbcTemplate, times(1)).update("INSERT INTO endpointhit SELECT * FROM endpointhit_moved");
+    }
+
+    @Test
+    void hitsBeforeRawRetentionAreNotPartitionedAndThenOk() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT DISTINCT"), eq(LocalDate.class), any()))
+                .thenReturn(List.of());
+
+        partitionManager.maintainPartitions();
+
+        verify(jdbcTemplate).queryForList(startsWith("SELECT DISTINCT"), eq(LocalDate.class),
+                eq(today.minusDays(30).atStartOfDay()));
+        verify(jdbcTemplate, never()).update("INSERT INTO endpointhit SELECT * FROM endpointhit_moved");
+    }
+
+    private String partitionName(LocalDate day) {
+        return "endpointhit_p" + day.format(SUFFIX);
+    }
+}
@@ -7,12 +7,19 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.EndpointHitStatsDto;
+import ru.practicum.dto.EndpointHitTotalDto;
+import ru.practicum.dto.ResourceHitsDto;
 import ru.practicum.mapper.EndpointHitMapper;
 import ru.practicum.model.EndpointHit;
+import ru.practicum.endpointhit.sketch.EndpointHitSketch;
+import ru.practicum.endpointhit.sketch.HyperLogLog;
+import ru.practicum.endpointhit.storage.BucketKey;
 import ru.practicum.endpointhit.storage.EndpointHitStorage;
+import ru.practicum.endpointhit.storage.RollupGranularity;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
@@ -49,6 +56,16 @@ class EndpointHitStorageTest {
         assertEquals(eh.getId(), 1);
     }
 
+    @Test
+    void verifySaveAllInBatchAndThenOk() {
+        storage.saveAllInBatch(List.of(endpointHit, endpointHit, endpointHit));
+
+        List<EndpointHitStatsDto> stats = storage.findAllEndpointHitByDate(start, end);
+
+        assertThat(stats.size(), equalTo(1));
+        assertThat(stats.get(0).getHits(), equalTo(3L));
+    }
+
     @Test
     void getStatsWithUrisAndThenOk() {
         tem.persist(endpointHit);
@@ -101,8 +118,126 @@ class EndpointHitStorageTest {
     void getStatsForPeriodWithoutEndpointHitsAndThenOk() {
         tem.persist(endpointHit);
 
-        List<EndpointHitStatsDto> stats = storage.findAllEndpointHitByDate(start.plusYears(6), end);
+        List<EndpointHitStatsDto> stats = storage.findAllEndpointHitByDate(end, end.plusYears(1));
 
         assertThat(stats.size(), equalTo(0));
     }
+
+    @Test
+    void getRollupStatsAfterAddToRollupsAndThenOk() {
+        LocalDateTime dateTime = LocalDateTime.of(2023, 1, 1, 10, 30, 15);
+        BucketKey key = new BucketKey("appText", "uriText", dateTime.withMinute(0).withSecond(0));
+
+        storage.addToRollups(RollupGranularity.HOUR, Map.of(key, 2L));
+        storage.addToRollups(RollupGranularity.HOUR, Map.of(key, 1L));
+
+        List<EndpointHitStatsDto> hourStats = storage.findRollupStats(RollupGranularity.HOUR,
+                dateTime.withMinute(0).withSecond(0), dateTime.plusHours(1), uris);
+        List<EndpointHitStatsDto> minuteStats = storage.findRollupStats(RollupGranularity.MINUTE,
+                dateTime.plusMinutes(1), dateTime.plusHours(1), null);
+
+        assertThat(hourStats.size(), equalTo(1));
+        assertThat(hourStats.get(0).getUri(), equalTo(statsDto.getUri()));
+        assertThat(hourStats.get(0).getHits(), equalTo(3L));
+        assertThat(minuteStats.size(), equalTo(0));
+    }
+
+    @Test
+    void deleteRollupsBeforeKeepsDayRollupsAndThenOk() {
+        LocalDateTime dateTime = LocalDateTime.of(2023, 1, 1, 10, 30, 15);
+        storage.addToRollups(RollupGranularity.HOUR,
+                Map.of(new BucketKey("appText", "uriText", dateTime.withMinute(0).withSecond(0)), 1L));
+        storage.addToRollups(RollupGranularity.DAY,
+                Map.of(new BucketKey("appText", "uriText", dateTime.withHour(0).withMinute(0).withSecond(0)), 1L));
+
+        int deleted = storage.deleteRollupsBefore(RollupGranularity.HOUR, dateTime.plusDays(1));
+
+        List<EndpointHitStatsDto> hourStats = storage.findRollupStats(RollupGranularity.HOUR,
+                dateTime.withHour(0).withMinute(0).withSecond(0), dateTime.plusDays(1), uris);
+        List<EndpointHitStatsDto> dayStats = storage.findRollupStats(RollupGranularity.DAY,
+                dateTime.withHour(0).withMinute(0).withSecond(0), dateTime.plusDays(1), uris);
+
+        assertThat(deleted, equalTo(1));
+        assertThat(hourStats.size(), equalTo(0));
+        assertThat(dayStats.get(0).getHits(), equalTo(1L));
+    }
+
+    @Test
+    void findSketchesAfterMergeSketchesAndThenOk() {
+        LocalDateTime dateTime = LocalDateTime.of(2023, 1, 1, 10, 30, 15);
+        BucketKey key = new BucketKey("appText", "uriText", dateTime.withMinute(0).withSecond(0));
+        HyperLogLog first = new HyperLogLog();
+        first.add("ipText");
+        HyperLogLog second = new HyperLogLog();
+        second.add("otherIpText");
+
+        storage.mergeSketches(RollupGranularity.HOUR, Map.of(key, first));
+        storage.mergeSketches(RollupGranularity.HOUR, Map.of(key, second));
+
+        List<EndpointHitSketch> sketches = storage.findSketches(RollupGranularity.HOUR,
+                dateTime.withMinute(0).withSecond(0), dateTime.plusHours(1), uris);
+
+        assertThat(sketches.size(), equalTo(1));
+        assertThat(sketches.get(0).getUri(), equalTo(statsDto.getUri()));
+        assertThat(sketches.get(0).getSketch().estimate(), equalTo(2L));
+    }
+
+    @Test
+    void findRawSketchesAndThenOk() {
+        tem.persist(endpointHit);
+        tem.persist(new EndpointHit(0, "appText", "uriText", "ipText", endpointHit.getDateTime(), null, null));
+
+        List<EndpointHitSketch> sketches = storage.findRawSketches(start, end, null);
+
+        assertThat(sketches.size(), equalTo(1));
+        assertThat(sketches.get(0).getSketch().estimate(), equalTo(1L));
+    }
+
+    @Test
+    void findResourceStatsByIdsAndThenOk() {
+        LocalDateTime now = LocalDateTime.now();
+        storage.saveAllInBatch(List.of(
+                EndpointHitMapper.makeEndpointHit(new EndpointHitDto("appText", "/events/1", "ipText", now)),
+                EndpointHitMapper.makeEndpointHit(new EndpointHitDto("appText", "/events/1", "ipText", now)),
+                EndpointHitMapper.makeEndpointHit(new EndpointHitDto("appText", "/events/1", "otherIpText", now)),
+                EndpointHitMapper.makeEndpointHit(new EndpointHitDto("appText", "/events/2", "ipText", now)),
+                EndpointHitMapper.makeEndpointHit(new EndpointHitDto("appText", "/events", "ipText", now))));
+
+        List<ResourceHitsDto> stats = storage.findResourceStats("events", new long[]{1, 3}, start, end, false);
+        List<ResourceHitsDto> uniqueStats = storage.findResourceStats("events", new long[]{1, 3}, start, end, true);
+
+        assertThat(stats.size(), equalTo(1));
+        assertThat(stats.get(0).getId(), equalTo(1L));
+        assertThat(stats.get(0).getHits(), equalTo(3L));
+        assertThat(uniqueStats.get(0).getHits(), equalTo(2L));
+    }
+
+    @Test
+    void findTotalsAfterAddToTotalsAndThenOk() {
+        LocalDateTime now = LocalDateTime.now();
+        BucketKey day = new BucketKey("appText", "/events/1", now.toLocalDate().atStartOfDay());
+        BucketKey previousDay = new BucketKey("appText", "/events/1", day.getBucket().minusDays(1));
+        BucketKey otherApp = new BucketKey("otherAppText", "/events/1", day.getBucket());
+        HyperLogLog firstDay = new HyperLogLog();
+        firstDay.add("ipText");
+        HyperLogLog secondDay = new HyperLogLog();
+        secondDay.add("ipText");
+        secondDay.add("otherIpText");
+
+        storage.addToTotals(Map.of(day, 2L));
+        storage.addToTotals(Map.of(day, 1L, previousDay, 1L, otherApp, 1L));
+        storage.mergeTotalSketches(Map.of(day, firstDay));
+        storage.mergeTotalSketches(Map.of(day, secondDay));
+
+        List<EndpointHitTotalDto> totals = storage.findTotals(new String[]{"/events/1", "/events/2"});
+        List<ResourceHitsDto> resourceTotals = storage.findResourceTotals("appText", "events", new long[]{1, 2},
+                false);
+        List<ResourceHitsDto> uniqueTotals = storage.findResourceTotals("appText", "events", new long[]{1, 2},
+                true);
+
+        assertThat(totals.size(), equalTo(2));
+        assertThat(resourceTotals.size(), equalTo(1));
+        assertThat(resourceTotals.get(0).getHits(), equalTo(4L));
+        assertThat(uniqueTotals.get(0).getHits(), equalTo(2L));
+    }
 }